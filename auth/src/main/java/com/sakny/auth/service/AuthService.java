@@ -32,6 +32,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final RefreshTokenService refreshTokenService;
+    private final AuthenticatedPrincipalCache principalCache;
     private final AuthenticationManager authenticationManager;
     private final OtpService otpService;
 
@@ -134,6 +135,7 @@ public class AuthService {
     @Transactional
     public void logout(Long userId) {
         refreshTokenService.revokeAllUserTokens(userId);
+        principalCache.invalidate(userId);
     }
 
     public void sendOtp(SendOtpRequest request) {
@@ -153,6 +155,7 @@ public class AuthService {
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         repository.save(user);
         refreshTokenService.revokeAllUserTokens(user.getId());
+        principalCache.invalidate(user.getId());
     }
 
     private void handleFailedLogin(User user) {
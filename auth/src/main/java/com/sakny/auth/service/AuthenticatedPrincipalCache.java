@@ -0,0 +1,187 @@
+package com.sakny.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sakny.common.event.RedisMessagesDroppedEvent;
+import com.sakny.user.entity.User;
+import com.sakny.user.event.AccountDeletedEvent;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves access tokens to their authenticated user, shared by the HTTP filter and the STOMP
+ * CONNECT interceptor.
+ *
+ * <p>A token is parsed once and its user loaded once; the result is kept under the token's SHA-256
+ * hash until the token expires or {@code principal-cache-ttl} passes, whichever comes first, for at
+ * most {@code principal-cache-size} tokens, least recently used first out. Entries of a user are
+ * evicted on every node when they log out, reset their password or delete their account, so the
+ * next request re-reads the user; the eviction is repeated once the change commits. A token being
+ * resolved while its user is evicted still authenticates that one request, and is parsed again on
+ * the next. Cached users are shared between requests and must not be modified.
+ */
+@Service
+@Slf4j
+public class AuthenticatedPrincipalCache implements MessageListener {
+
+    private static final String INVALIDATION_CHANNEL = "sakny:auth:principal-invalidations";
+
+    private final JwtService jwtService;
+    private final UserDetailsService userDetailsService;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Cache<String, Entry> entries;
+    private final AtomicLong evictions = new AtomicLong();
+    private final long ttlMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public AuthenticatedPrincipalCache(JwtService jwtService,
+                                       UserDetailsService userDetailsService,
+                                       StringRedisTemplate redisTemplate,
+                                       RedisMessageListenerContainer listenerContainer,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${application.security.jwt.principal-cache-ttl:300000}") long ttlMillis,
+                                       @Value("${application.security.jwt.principal-cache-size:10000}") int maxSize) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.redisTemplate = redisTemplate;
+        this.ttlMillis = ttlMillis;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.writing((String key, Entry entry) -> entry.lifetime()))
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+
+        this.hits = Counter.builder("sakny.auth.principal.cache")
+                .tag("result", "hit")
+                .description("Access tokens resolved without parsing or a user lookup")
+                .register(meterRegistry);
+        this.misses = Counter.builder("sakny.auth.principal.cache")
+                .tag("result", "miss")
+                .description("Access tokens parsed and their user loaded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the user the token was issued to, or {@code null} if the token does not match them.
+     * Parsing errors propagate as from {@link JwtService}, e.g. {@code ExpiredJwtException}.
+     */
+    public UserDetails authenticate(String token) {
+        String key = hash(token);
+        Entry cached = entries.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.user();
+        }
+        misses.increment();
+
+        long generation = evictions.get();
+        Claims claims = jwtService.extractAllClaims(token);
+        if (claims.getSubject() == null) {
+            return null;
+        }
+        UserDetails user = userDetailsService.loadUserByUsername(claims.getSubject());
+        if (!jwtService.isTokenValid(claims, user)) {
+            return null;
+        }
+
+        long remaining = claims.getExpiration().getTime() - System.currentTimeMillis();
+        Entry entry = new Entry(user, Duration.ofMillis(Math.max(0, Math.min(remaining, ttlMillis))));
+        if (evictions.get() == generation) {
+            entries.put(key, entry);
+            // An eviction that started meanwhile may have scanned past the new entry
+            if (evictions.get() != generation) {
+                entries.asMap().remove(key, entry);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Drops every cached token of the user, on this node and, through Redis, on the others; again
+     * after the current transaction commits, as requests may re-read the user until then.
+     */
+    public void invalidate(Long userId) {
+        evict(userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateEverywhere(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateEverywhere(userId);
+            }
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        invalidateEverywhere(event.userId());
+    }
+
+    private void invalidateEverywhere(Long userId) {
+        evict(userId);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            log.warn("Could not publish principal cache invalidation for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            evict(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed principal cache invalidation");
+        }
+    }
+
+    @EventListener
+    public void onMessagesDropped(RedisMessagesDroppedEvent event) {
+        evictions.incrementAndGet();
+        entries.invalidateAll();
+    }
+
+    private void evict(Long userId) {
+        evictions.incrementAndGet();
+        entries.asMap().values().removeIf(entry -> entry.user() instanceof User user && userId.equals(user.getId()));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to hash token", e);
+        }
+    }
+
+    private record Entry(UserDetails user, Duration lifetime) {}
+}
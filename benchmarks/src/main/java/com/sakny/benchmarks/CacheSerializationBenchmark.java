@@ -0,0 +1,125 @@
+package com.sakny.benchmarks;
+
+import com.sakny.common.config.CacheValueSerializer;
+import com.sakny.common.config.CacheValueSerializer.Format;
+import com.sakny.common.dto.RestPage;
+import com.sakny.property.dto.AmenityResponse;
+import com.sakny.property.dto.PropertyImageResponse;
+import com.sakny.property.dto.PropertyResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading one cached listing page ({@code RestPage<PropertyResponse>}) with each cache
+ * value codec. {@code json} is what every cache stored before codecs became configurable.
+ *
+ * <p>Run with {@code -prof com.sakny.benchmarks.EntrySizeProfiler} to add the size of the serialized
+ * page to the results, as {@code entry.size}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Thread)
+public class CacheSerializationBenchmark {
+
+    private static final String[] TYPES = {"Apartment", "Room", "Studio", "Duplex"};
+    private static final String[] CITIES = {"Nasr City", "Maadi", "Dokki", "Smouha", "Sheikh Zayed"};
+    private static final String[] AMENITIES = {"wifi", "ac", "elevator", "parking", "washer", "balcony", "gym"};
+
+    @Param({"json", "smile", "smile-lz4"})
+    public String codec;
+
+    @Param({"20"})
+    public int pageSize;
+
+    private CacheValueSerializer serializer;
+    private RestPage<PropertyResponse> page;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = switch (codec) {
+            case "json" -> new CacheValueSerializer(Format.JSON, -1);
+            case "smile" -> new CacheValueSerializer(Format.SMILE, -1);
+            case "smile-lz4" -> new CacheValueSerializer(Format.SMILE, 1024);
+            default -> throw new IllegalArgumentException(codec);
+        };
+        page = listingPage(new SplittableRandom(Fixtures.SEED), pageSize);
+        serialized = serializer.serialize(page);
+        EntrySizeProfiler.record(serialized.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(page);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serialized);
+    }
+
+    private static RestPage<PropertyResponse> listingPage(SplittableRandom random, int size) {
+        List<PropertyResponse> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Set<AmenityResponse> amenities = new LinkedHashSet<>();
+            for (int a = 0; a < AMENITIES.length; a++) {
+                if (random.nextBoolean()) {
+                    amenities.add(new AmenityResponse((long) a + 1, AMENITIES[a], "ميزة " + (a + 1), AMENITIES[a] + ".svg"));
+                }
+            }
+            List<PropertyImageResponse> images = new ArrayList<>();
+            for (int m = 0, n = 1 + random.nextInt(5); m < n; m++) {
+                images.add(new PropertyImageResponse(random.nextLong(1, 1_000_000),
+                        "https://cdn.sakny.example/properties/" + random.nextLong(1, 1_000_000) + ".jpg", m == 0));
+            }
+            content.add(PropertyResponse.builder()
+                    .id((long) i + 1)
+                    .ownerId(random.nextLong(1, 100_000))
+                    .ownerName("Owner " + i)
+                    .title("Furnished " + TYPES[i % TYPES.length].toLowerCase() + " near the metro")
+                    .description("Bright, quiet and close to universities and shops. Utilities are shared "
+                            + "between tenants and the building has a doorman. ".repeat(1 + random.nextInt(3)))
+                    .price(BigDecimal.valueOf(random.nextInt(2000, 20000)))
+                    .propertyType(TYPES[random.nextInt(TYPES.length)])
+                    .governorate("Cairo")
+                    .city(CITIES[random.nextInt(CITIES.length)])
+                    .address(random.nextInt(1, 200) + " Street " + random.nextInt(1, 90))
+                    .latitude(BigDecimal.valueOf(30 + random.nextDouble()).setScale(6, RoundingMode.HALF_UP))
+                    .longitude(BigDecimal.valueOf(31 + random.nextDouble()).setScale(6, RoundingMode.HALF_UP))
+                    .roomsCount(1 + random.nextInt(4))
+                    .bathroomsCount(1 + random.nextInt(2))
+                    .floorNumber(random.nextInt(12))
+                    .isFullyFurnished(random.nextBoolean())
+                    .availableFrom(LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)))
+                    .amenities(amenities)
+                    .images(images)
+                    .createdAt(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(random.nextInt(500_000)))
+                    .deposit(BigDecimal.valueOf(random.nextInt(1000, 10000)))
+                    .minimumStayMonths(1 + random.nextInt(12))
+                    .paymentPeriod("MONTHLY")
+                    .maxOccupancy(1 + random.nextInt(4))
+                    .parkingSpots(random.nextInt(2))
+                    .utilitiesIncluded(random.nextBoolean())
+                    .internetIncluded(random.nextBoolean())
+                    .petsAllowed(random.nextBoolean())
+                    .smokingAllowed(random.nextBoolean())
+                    .preferredTenant("STUDENTS")
+                    .build());
+        }
+        return new RestPage<>(content, PageRequest.of(0, size), 240);
+    }
+}
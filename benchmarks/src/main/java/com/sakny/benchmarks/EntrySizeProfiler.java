@@ -0,0 +1,44 @@
+package com.sakny.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Adds the size of the cache entry a benchmark serialized, in bytes, to its results as
+ * {@code entry.size}. Unlike an {@code @AuxCounters} events counter, which JMH sums over iterations
+ * and forks, the size is averaged, so the result is the size itself.
+ */
+public class EntrySizeProfiler implements InternalProfiler {
+
+    private static volatile long size = -1;
+
+    /** Called by a benchmark's setup with the size of the entry it works on. */
+    static void record(long bytes) {
+        size = bytes;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Serialized size of the benchmark's cache entry";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+                                                       IterationParams iterationParams,
+                                                       IterationResult result) {
+        long bytes = size;
+        return bytes < 0 ? List.of() : List.of(new ScalarResult("entry.size", bytes, "B", AggregationPolicy.AVG));
+    }
+}
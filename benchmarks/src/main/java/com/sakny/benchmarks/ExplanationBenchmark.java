@@ -0,0 +1,60 @@
+package com.sakny.benchmarks;
+
+import com.sakny.user.service.MatchExplanationService;
+import com.sakny.user.service.MatchFeatures;
+import com.sakny.user.service.MatchingService;
+import com.sakny.user.service.MatchingService.MatchScoreResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a score breakdown into the human-readable explanation and discussion topics.
+ * Breakdowns come from real scoring of the synthetic population, so every branch of the
+ * templates is exercised in production proportions.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Thread)
+public class ExplanationBenchmark {
+
+    private static final int PAIRS = 4096;
+
+    private final MatchExplanationService explanationService = new MatchExplanationService();
+    private MatchScoreResult[] results;
+    private String[] names;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MatchingService matchingService = Fixtures.matchingService(1, Integer.MAX_VALUE);
+        List<MatchFeatures> population = new SyntheticProfiles(Fixtures.SEED).profiles(PAIRS).stream()
+                .map(matchingService::featuresOf)
+                .toList();
+        results = new MatchScoreResult[PAIRS];
+        names = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            results[i] = matchingService.computeMatchScoreDetails(population.get(i), population.get((i + 1) % PAIRS));
+            names[i] = "User " + i;
+        }
+    }
+
+    @Benchmark
+    public String explanation() {
+        int i = next();
+        return explanationService.generateExplanation(results[i].score(), results[i].breakdown(), names[i]);
+    }
+
+    @Benchmark
+    public List<String> discussionTopics() {
+        return explanationService.generateDiscussionTopics(results[next()].breakdown());
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & (PAIRS - 1);
+    }
+}
@@ -0,0 +1,23 @@
+package com.sakny.benchmarks;
+
+import com.sakny.user.config.MatchingProperties;
+import com.sakny.user.mapper.PersonalityTraitCodec;
+import com.sakny.user.service.MatchingService;
+
+/**
+ * Services wired the way Spring wires them, minus the database.
+ */
+final class Fixtures {
+
+    static final long SEED = 20240611L;
+
+    private Fixtures() {
+    }
+
+    static MatchingService matchingService(int parallelism, int parallelThreshold) {
+        MatchingProperties properties = new MatchingProperties();
+        properties.setParallelism(parallelism);
+        properties.setParallelThreshold(parallelThreshold);
+        return new MatchingService(properties, new InMemoryTraitDictionary(), new PersonalityTraitCodec());
+    }
+}
@@ -0,0 +1,24 @@
+package com.sakny.benchmarks;
+
+import com.sakny.user.service.TraitDictionary;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link TraitDictionary} that assigns ids in memory instead of through the database.
+ */
+final class InMemoryTraitDictionary extends TraitDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    InMemoryTraitDictionary() {
+        super(null);
+    }
+
+    @Override
+    public int idOf(String trait) {
+        return ids.computeIfAbsent(trait.toLowerCase(Locale.ROOT), name -> ids.size() + 1);
+    }
+}
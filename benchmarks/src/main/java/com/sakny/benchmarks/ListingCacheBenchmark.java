@@ -0,0 +1,204 @@
+package com.sakny.benchmarks;
+
+import com.sakny.common.config.CacheConfig;
+import com.sakny.common.config.CacheValueSerializer;
+import com.sakny.common.config.CacheValueSerializer.Format;
+import com.sakny.common.config.LocalCacheProperties;
+import com.sakny.common.config.TwoTierCacheManager;
+import com.sakny.common.dto.RestPage;
+import com.sakny.property.dto.PropertyFilterRequest;
+import com.sakny.property.dto.PropertyResponse;
+import com.sakny.property.entity.Property;
+import com.sakny.property.service.PropertyListingCache;
+import com.sakny.user.entity.City;
+import com.sakny.user.entity.Governorate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing page reads mixed with property writes, against a live Redis, through the same two-tier
+ * cache and {@link PropertyListingCache} the application uses.
+ *
+ * <p>Each operation reads one of the cached pages; with probability {@code writeRatio} a property in
+ * a random city is saved first. {@code eviction = clear} drops every page on each write, as the
+ * listing cache did before pages were tagged; {@code tags} evicts the pages registered under the
+ * property's tags with one batch eviction, {@code keys} evicts the same pages one key at a time (a
+ * delete and an invalidation message each), as tag eviction did before it was batched. The {@code hits} and {@code loads} counters split the reads by whether the page
+ * was served from either cache tier or had to be loaded; the hit ratio is
+ * {@code hits / (hits + loads)}, the same split as the {@code sakny.cache.gets} meters.
+ *
+ * <p>Not part of the baseline, since it needs a Redis server:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar ListingCache -p host=localhost -p port=6379
+ * </pre>
+ * The selected database is flushed at the start of each trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListingCacheBenchmark {
+
+    private static final int CITIES = 20;
+    private static final int GOVERNORATES = 4;
+    private static final String[] TYPES = {"Apartment", "Room", "Studio"};
+    private static final int PAGES = 3;
+    private static final Page<PropertyResponse> EMPTY = new RestPage<>(List.of(), PageRequest.of(0, 20), 0);
+
+    @Param({"localhost"})
+    public String host;
+
+    @Param({"6379"})
+    public int port;
+
+    @Param({"clear", "keys", "tags"})
+    public String eviction;
+
+    @Param({"0.01", "0.1"})
+    public double writeRatio;
+
+    private LettuceConnectionFactory connectionFactory;
+    private RedisMessageListenerContainer listenerContainer;
+    private CacheManager cacheManager;
+    private PropertyListingCache listingCache;
+    private PropertyFilterRequest[] filters;
+    private final SplittableRandom random = new SplittableRandom(Fixtures.SEED);
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Reads {
+        public long hits;
+        public long loads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            loads = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try (var connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushDb();
+        }
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        RedisCacheManager remote = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                        .disableCachingNullValues()
+                        .entryTtl(CacheConfig.PROPERTY_LISTINGS_TTL)
+                        .serializeKeysWith(RedisSerializationContext.SerializationPair
+                                .fromSerializer(new StringRedisSerializer()))
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair
+                                .fromSerializer(new CacheValueSerializer(Format.SMILE, 1024))))
+                .build();
+        remote.afterPropertiesSet();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cacheManager = new TwoTierCacheManager(remote, new LocalCacheProperties(), redisTemplate,
+                listenerContainer, meterRegistry);
+        // The decorated caches are not BatchEvictingCaches, so their pages are evicted key by key
+        CacheManager listingManager = eviction.equals("keys")
+                ? new TransactionAwareCacheManagerProxy(cacheManager)
+                : cacheManager;
+        listingCache = new PropertyListingCache(listingManager, redisTemplate, meterRegistry);
+        filters = filters();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        listenerContainer.destroy();
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    public Page<PropertyResponse> read(Reads reads) {
+        if (random.nextDouble() < writeRatio) {
+            write();
+        }
+        PropertyFilterRequest filter = filters[random.nextInt(filters.length)];
+        boolean[] loaded = new boolean[1];
+        Page<PropertyResponse> page = listingCache.get(filter, PageRequest.of(random.nextInt(PAGES), 20), () -> {
+            loaded[0] = true;
+            return EMPTY;
+        });
+        if (loaded[0]) {
+            reads.loads++;
+        } else {
+            reads.hits++;
+        }
+        return page;
+    }
+
+    private void write() {
+        if (eviction.equals("clear")) {
+            cacheManager.getCache(CacheConfig.PROPERTY_LISTINGS).clear();
+            return;
+        }
+        int city = random.nextInt(CITIES);
+        Property property = Property.builder()
+                .city(City.builder().id(city).build())
+                .governorate(Governorate.builder().id(city % GOVERNORATES).build())
+                .propertyType(TYPES[random.nextInt(TYPES.length)])
+                .price(BigDecimal.valueOf(1000 + random.nextInt(9000)))
+                .isFullyFurnished(random.nextBoolean())
+                .build();
+        listingCache.evictAfterCommit(listingCache.tagsOf(property));
+    }
+
+    // What the listing screens ask for: a city, a city and type, a type, a price band, or everything
+    private static PropertyFilterRequest[] filters() {
+        List<PropertyFilterRequest> filters = new ArrayList<>();
+        for (int city = 0; city < CITIES; city++) {
+            filters.add(filter(city, null, null));
+            filters.add(filter(city, TYPES[city % TYPES.length], null));
+        }
+        for (String type : TYPES) {
+            filters.add(filter(null, type, null));
+        }
+        for (int band = 1; band < 10; band++) {
+            filters.add(filter(null, null, band));
+        }
+        filters.add(filter(null, null, null));
+        return filters.toArray(new PropertyFilterRequest[0]);
+    }
+
+    private static PropertyFilterRequest filter(Integer cityId, String type, Integer priceBand) {
+        PropertyFilterRequest filter = new PropertyFilterRequest();
+        filter.setCityId(cityId);
+        filter.setPropertyType(type);
+        if (priceBand != null) {
+            filter.setMinPrice(BigDecimal.valueOf(priceBand * 1000L));
+            filter.setMaxPrice(BigDecimal.valueOf(priceBand * 1000L + 1999));
+        }
+        return filter;
+    }
+}
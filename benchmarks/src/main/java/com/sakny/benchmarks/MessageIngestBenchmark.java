@@ -0,0 +1,148 @@
+package com.sakny.benchmarks;
+
+import com.sakny.message.entity.Conversation;
+import com.sakny.message.entity.Message;
+import com.sakny.message.entity.MessageIdGenerator;
+import com.sakny.message.repository.MessageBatchWriter;
+import com.sakny.user.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message persistence against a live PostgreSQL database migrated by the application, in messages
+ * per second (the {@code messages} counter).
+ *
+ * <p>{@code batchSize = 1} issues what a synchronous send does per message: one INSERT and two
+ * participant summary upserts in their own transaction. Larger batches are what the write-behind
+ * writer does per flush. {@code conversations = 1} is a burst inside one chat, where every write
+ * contends for the same two summary rows.
+ *
+ * <p>Not part of the baseline, since it needs a database:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar MessageIngest -t 8 \
+ *     -p url=jdbc:postgresql://localhost:5433/saknyName -p user=saknyUser -p password=saknyPass
+ * </pre>
+ * Fixture users ({@code bench-*@sakny.invalid}) and their conversations are created on first use;
+ * the messages written are deleted after each trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageIngestBenchmark {
+
+    @Param({"jdbc:postgresql://localhost:5433/saknyName"})
+    public String url;
+
+    @Param({"saknyUser"})
+    public String user;
+
+    @Param({"saknyPass"})
+    public String password;
+
+    @Param({"1", "20", "200"})
+    public int batchSize;
+
+    @Param({"1", "64"})
+    public int conversations;
+
+    private Conversation[] fixtures;
+    private JdbcTemplate admin;
+    private ThreadLocal<Writer> writers;
+    private final MessageIdGenerator ids = new MessageIdGenerator(0);
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Written {
+        public long messages;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            messages = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        admin = new JdbcTemplate(new SingleConnectionDataSource(url, user, password, true));
+        fixtures = new Conversation[conversations];
+        long sender = userId(0);
+        for (int i = 0; i < conversations; i++) {
+            long receiver = userId(i + 1);
+            long one = Math.min(sender, receiver);
+            long two = Math.max(sender, receiver);
+            admin.update("""
+                INSERT INTO conversations (participant_one_id, participant_two_id) VALUES (?, ?)
+                ON CONFLICT (participant_one_id, participant_two_id) DO NOTHING
+            """, one, two);
+            Long id = admin.queryForObject(
+                "SELECT id FROM conversations WHERE participant_one_id = ? AND participant_two_id = ?",
+                Long.class, one, two);
+            fixtures[i] = Conversation.builder()
+                .id(id)
+                .participantOne(User.builder().id(one).build())
+                .participantTwo(User.builder().id(two).build())
+                .build();
+        }
+        // One connection per benchmark thread, like a pooled connection per request
+        writers = ThreadLocal.withInitial(() -> new Writer(url, user, password));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (Conversation conversation : fixtures) {
+            admin.update("DELETE FROM messages WHERE conversation_id = ?", conversation.getId());
+            admin.update("DELETE FROM conversation_participant_state WHERE conversation_id = ?", conversation.getId());
+        }
+        ((SingleConnectionDataSource) admin.getDataSource()).destroy();
+    }
+
+    @Benchmark
+    public void write(Written written) {
+        Writer writer = writers.get();
+        List<Message> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Conversation conversation = fixtures[writer.next++ % fixtures.length];
+            batch.add(Message.builder()
+                .id(ids.nextId())
+                .conversation(conversation)
+                .sender(conversation.getParticipantOne())
+                .receiver(conversation.getParticipantTwo())
+                .content("Is the room still available from next month?")
+                .sentAt(LocalDateTime.now())
+                .build());
+        }
+        writer.transactions.executeWithoutResult(status -> writer.batchWriter.write(batch));
+        written.messages += batchSize;
+    }
+
+    private long userId(int n) {
+        String email = "bench-" + n + "@sakny.invalid";
+        admin.update("INSERT INTO users (email, name) VALUES (?, ?) ON CONFLICT (email) DO NOTHING", email, "Bench " + n);
+        return admin.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+
+    private static final class Writer {
+        final MessageBatchWriter batchWriter;
+        final TransactionTemplate transactions;
+        int next;
+
+        Writer(String url, String user, String password) {
+            SingleConnectionDataSource dataSource = new SingleConnectionDataSource(url, user, password, true);
+            dataSource.setAutoCommit(false);
+            this.batchWriter = new MessageBatchWriter(new NamedParameterJdbcTemplate(dataSource));
+            this.transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        }
+    }
+}
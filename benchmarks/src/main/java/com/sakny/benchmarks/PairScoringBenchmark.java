@@ -0,0 +1,83 @@
+package com.sakny.benchmarks;
+
+import com.sakny.user.entity.UserProfile;
+import com.sakny.user.service.MatchFeatures;
+import com.sakny.user.service.MatchingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring one seeker/candidate pair, the unit of work behind every listing and ranking.
+ *
+ * <ul>
+ *   <li>{@code features}: the allocation-free path used when ranking candidate pools.</li>
+ *   <li>{@code details}: the full result with breakdown, strengths and conflicts, as served by
+ *       the compatibility endpoints.</li>
+ *   <li>{@code profiles}: scoring two entities, feature cache warm (the steady state).</li>
+ *   <li>{@code profilesCold}: the same with features rebuilt from the entities every time, as after
+ *       a profile edit.</li>
+ * </ul>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Thread)
+public class PairScoringBenchmark {
+
+    // Power of two so the cursor can wrap with a mask
+    private static final int POPULATION = 4096;
+
+    private MatchingService matchingService;
+    private UserProfile[] profiles;
+    private UserProfile[] detached;
+    private MatchFeatures[] features;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        matchingService = Fixtures.matchingService(1, Integer.MAX_VALUE);
+        SyntheticProfiles generator = new SyntheticProfiles(Fixtures.SEED);
+        List<UserProfile> population = generator.profiles(POPULATION);
+        profiles = population.toArray(UserProfile[]::new);
+        features = new MatchFeatures[POPULATION];
+        detached = new UserProfile[POPULATION];
+        for (int i = 0; i < POPULATION; i++) {
+            features[i] = matchingService.featuresOf(profiles[i]);
+            // Same data without an id, so the feature cache is bypassed
+            detached[i] = generator.profile(i);
+            detached[i].setId(null);
+        }
+    }
+
+    @Benchmark
+    public double features() {
+        int i = next();
+        return matchingService.computeMatchScore(features[i], features[(i + 1) & (POPULATION - 1)]);
+    }
+
+    @Benchmark
+    public MatchingService.MatchScoreResult details() {
+        int i = next();
+        return matchingService.computeMatchScoreDetails(features[i], features[(i + 1) & (POPULATION - 1)]);
+    }
+
+    @Benchmark
+    public MatchingService.MatchScoreResult profiles() {
+        int i = next();
+        return matchingService.computeMatchScore(profiles[i], profiles[(i + 1) & (POPULATION - 1)]);
+    }
+
+    @Benchmark
+    public MatchingService.MatchScoreResult profilesCold() {
+        int i = next();
+        return matchingService.computeMatchScore(detached[i], detached[(i + 1) & (POPULATION - 1)]);
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & (POPULATION - 1);
+    }
+}
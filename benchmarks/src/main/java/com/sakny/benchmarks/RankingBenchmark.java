@@ -0,0 +1,61 @@
+package com.sakny.benchmarks;
+
+import com.sakny.user.service.MatchFeatures;
+import com.sakny.user.service.MatchingService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranking a seeker against a whole candidate pool with {@link MatchingService#topMatches}.
+ *
+ * <p>{@code parallelism = 1} is the sequential path; larger values rank on the fork-join pool
+ * regardless of pool size, so comparing the two rows per {@code poolSize} locates the crossover
+ * that {@code sakny.matching.parallel-threshold} should be set to on the target hardware.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RankingBenchmark {
+
+    private static final int SEEKERS = 64;
+    private static final int TOP_K = 200;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int poolSize;
+
+    @Param({"1", "8"})
+    public int parallelism;
+
+    private MatchingService matchingService;
+    private List<MatchFeatures> pool;
+    private MatchFeatures[] seekers;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        matchingService = Fixtures.matchingService(parallelism, 0);
+        SyntheticProfiles generator = new SyntheticProfiles(Fixtures.SEED);
+        pool = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            // Profiles are discarded once converted; only the features are kept, as in production
+            pool.add(matchingService.featuresOf(generator.profile(i)));
+        }
+        seekers = new MatchFeatures[SEEKERS];
+        for (int i = 0; i < SEEKERS; i++) {
+            seekers[i] = pool.get(i * (poolSize / SEEKERS));
+        }
+    }
+
+    @Benchmark
+    public void topMatches(Blackhole blackhole) {
+        MatchFeatures seeker = seekers[cursor = (cursor + 1) % SEEKERS];
+        blackhole.consume(matchingService.topMatches(seeker, pool, TOP_K));
+    }
+}
@@ -0,0 +1,107 @@
+package com.sakny.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sakny.common.dto.MatchExplanationResponse;
+import com.sakny.common.dto.MatchScoreResponse;
+import com.sakny.user.entity.UserProfile;
+import com.sakny.user.service.CompatibilityService;
+import com.sakny.user.service.MatchExplanationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of a scored roommate listing, from scoring to the serialized JSON body.
+ *
+ * <ul>
+ *   <li>{@code scoresOnly}: what listings return, score and breakdown per card.</li>
+ *   <li>{@code withExplanations}: the same page with an explanation and discussion topics rendered
+ *       for every card, as listings used to do.</li>
+ * </ul>
+ *
+ * <p>The {@code bytes} counter is reported as a rate alongside the benchmark's; divided by it, it
+ * gives the serialized page size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Thread)
+public class ScoredListingBenchmark {
+
+    private static final int PAGES = 64;
+
+    @Param({"20"})
+    public int pageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CompatibilityService compatibilityService;
+    private UserProfile[] seekers;
+    private UserProfile[][] pages;
+    private int cursor;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PayloadCounters {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compatibilityService = new CompatibilityService(
+                Fixtures.matchingService(1, Integer.MAX_VALUE), new MatchExplanationService());
+        SyntheticProfiles generator = new SyntheticProfiles(Fixtures.SEED);
+        seekers = new UserProfile[PAGES];
+        pages = new UserProfile[PAGES][pageSize];
+        int next = 0;
+        for (int p = 0; p < PAGES; p++) {
+            seekers[p] = generator.profile(next++);
+            for (int c = 0; c < pageSize; c++) {
+                pages[p][c] = generator.profile(next++);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] scoresOnly(PayloadCounters counters) throws JsonProcessingException {
+        int p = next();
+        List<MatchScoreResponse> page = new ArrayList<>(pageSize);
+        for (UserProfile candidate : pages[p]) {
+            page.add(compatibilityService.compute(seekers[p], candidate));
+        }
+        return serialize(page, counters);
+    }
+
+    @Benchmark
+    public byte[] withExplanations(PayloadCounters counters) throws JsonProcessingException {
+        int p = next();
+        List<MatchScoreResponse> page = new ArrayList<>(pageSize);
+        for (UserProfile candidate : pages[p]) {
+            MatchScoreResponse scored = compatibilityService.compute(seekers[p], candidate);
+            MatchExplanationResponse explained = compatibilityService.explain(scored, candidate);
+            scored.setExplanation(explained.getExplanation());
+            scored.setDiscussionTopics(explained.getDiscussionTopics());
+            page.add(scored);
+        }
+        return serialize(page, counters);
+    }
+
+    private byte[] serialize(List<MatchScoreResponse> page, PayloadCounters counters) throws JsonProcessingException {
+        byte[] body = objectMapper.writeValueAsBytes(page);
+        counters.bytes += body.length;
+        return body;
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) % PAGES;
+    }
+}
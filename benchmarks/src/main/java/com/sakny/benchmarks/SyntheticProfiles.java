@@ -0,0 +1,161 @@
+package com.sakny.benchmarks;
+
+import com.sakny.common.model.*;
+import com.sakny.user.entity.City;
+import com.sakny.user.entity.Governorate;
+import com.sakny.user.entity.PreferredArea;
+import com.sakny.user.entity.User;
+import com.sakny.user.entity.UserProfile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Deterministic generator of realistic {@link UserProfile} populations.
+ *
+ * <p>Profile {@code i} takes its enum values from combination {@code i * STRIDE mod COMBINATIONS}
+ * of every lifestyle and preference enum (nullable preferences include {@code null}), so any
+ * population of at least {@link #COMBINATIONS} profiles contains each combination, and smaller ones
+ * are spread evenly over all of them. Budgets, cleanliness, traits and preferred areas are drawn from
+ * a seeded random source with distributions close to production data.
+ */
+public final class SyntheticProfiles {
+
+    private static final Gender[] GENDERS = Gender.values();
+    private static final RoommateType[] ROOMMATE_TYPES = RoommateType.values();
+    private static final SmokingStatus[] SMOKING = SmokingStatus.values();
+    private static final PetStatus[] PETS = PetStatus.values();
+    private static final SleepSchedule[] SLEEP = SleepSchedule.values();
+    private static final SmokingPreference[] PREF_SMOKING = withNull(SmokingPreference.values());
+    private static final PetPreference[] PREF_PETS = withNull(PetPreference.values());
+    private static final SleepSchedulePreference[] PREF_SLEEP = withNull(SleepSchedulePreference.values());
+    private static final CleanlinessPreference[] PREF_CLEANLINESS = withNull(CleanlinessPreference.values());
+
+    public static final int COMBINATIONS = GENDERS.length * GENDERS.length * ROOMMATE_TYPES.length
+            * SMOKING.length * PETS.length * SLEEP.length * PREF_SMOKING.length * PREF_PETS.length
+            * PREF_SLEEP.length * PREF_CLEANLINESS.length;
+
+    // Prime, hence coprime with COMBINATIONS (a product of small primes)
+    private static final long STRIDE = 7919;
+
+    private static final List<String> TRAITS = List.of(
+            "quiet", "social", "organized", "introvert", "extrovert", "studious", "gamer", "early riser",
+            "night owl", "gym", "cooking", "reading", "music", "movies", "travel", "religious", "tidy",
+            "relaxed", "outgoing", "homebody", "vegetarian", "football", "photography", "art", "coding",
+            "hiking", "podcasts", "board games", "yoga", "coffee", "tea", "anime", "volunteering",
+            "languages", "fashion", "cycling", "swimming", "chess", "gardening", "writing");
+
+    private static final int GOVERNORATES = 27;
+    private static final int CITIES_PER_GOVERNORATE = 12;
+
+    private final SplittableRandom random;
+    private final Governorate[] governorates = new Governorate[GOVERNORATES];
+    private final City[][] cities = new City[GOVERNORATES][CITIES_PER_GOVERNORATE];
+
+    public SyntheticProfiles(long seed) {
+        this.random = new SplittableRandom(seed);
+        for (int g = 0; g < GOVERNORATES; g++) {
+            governorates[g] = Governorate.builder().id(g + 1).nameEn("Governorate " + (g + 1)).build();
+            for (int c = 0; c < CITIES_PER_GOVERNORATE; c++) {
+                cities[g][c] = City.builder()
+                        .id(g * CITIES_PER_GOVERNORATE + c + 1)
+                        .governorate(governorates[g])
+                        .nameEn("City " + (c + 1))
+                        .build();
+            }
+        }
+    }
+
+    /**
+     * Builds profile {@code i} of the population. Profile and user ids are {@code i + 1}.
+     */
+    public UserProfile profile(int i) {
+        long combination = (i * STRIDE) % COMBINATIONS;
+        Gender gender = GENDERS[(int) (combination % GENDERS.length)];
+        combination /= GENDERS.length;
+        Gender roommateGender = GENDERS[(int) (combination % GENDERS.length)];
+        combination /= GENDERS.length;
+        RoommateType roommateType = ROOMMATE_TYPES[(int) (combination % ROOMMATE_TYPES.length)];
+        combination /= ROOMMATE_TYPES.length;
+        SmokingStatus smoking = SMOKING[(int) (combination % SMOKING.length)];
+        combination /= SMOKING.length;
+        PetStatus pets = PETS[(int) (combination % PETS.length)];
+        combination /= PETS.length;
+        SleepSchedule sleep = SLEEP[(int) (combination % SLEEP.length)];
+        combination /= SLEEP.length;
+        SmokingPreference prefSmoking = PREF_SMOKING[(int) (combination % PREF_SMOKING.length)];
+        combination /= PREF_SMOKING.length;
+        PetPreference prefPets = PREF_PETS[(int) (combination % PREF_PETS.length)];
+        combination /= PREF_PETS.length;
+        SleepSchedulePreference prefSleep = PREF_SLEEP[(int) (combination % PREF_SLEEP.length)];
+        combination /= PREF_SLEEP.length;
+        CleanlinessPreference prefCleanliness = PREF_CLEANLINESS[(int) (combination % PREF_CLEANLINESS.length)];
+
+        // Budgets in EGP, 1500..15000 in steps of 250, with a 0..5000 spread
+        int budgetMin = 1500 + 250 * random.nextInt(55);
+        int budgetMax = budgetMin + 250 * random.nextInt(21);
+
+        UserProfile profile = UserProfile.builder()
+                .id((long) i + 1)
+                .user(User.builder().id((long) i + 1).name("User " + i).build())
+                .age(18 + random.nextInt(20))
+                .gender(gender)
+                .personalityTraits(traitsJson())
+                .smoking(smoking)
+                .pets(pets)
+                .sleepSchedule(sleep)
+                .cleanliness(1 + random.nextInt(5))
+                .budgetMin(budgetMin)
+                .budgetMax(budgetMax)
+                .roommateGender(roommateGender)
+                .roommateType(roommateType)
+                .prefSmoking(prefSmoking)
+                .prefPets(prefPets)
+                .prefSleepSchedule(prefSleep)
+                .prefCleanliness(prefCleanliness)
+                .isComplete(true)
+                .build();
+
+        // Most users pick 1-3 cities, usually in one or two governorates
+        int home = random.nextInt(GOVERNORATES);
+        int areas = 1 + random.nextInt(3);
+        for (int a = 0; a < areas; a++) {
+            int g = random.nextInt(4) == 0 ? random.nextInt(GOVERNORATES) : home;
+            profile.addPreferredArea(PreferredArea.builder()
+                    .governorate(governorates[g])
+                    .city(cities[g][random.nextInt(CITIES_PER_GOVERNORATE)])
+                    .build());
+        }
+        profile.setCurrentGovernorate(governorates[home]);
+        return profile;
+    }
+
+    public List<UserProfile> profiles(int count) {
+        List<UserProfile> profiles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            profiles.add(profile(i));
+        }
+        return profiles;
+    }
+
+    private String traitsJson() {
+        int count = 2 + random.nextInt(7);
+        List<String> picked = new ArrayList<>(count);
+        while (picked.size() < count) {
+            String trait = TRAITS.get(random.nextInt(TRAITS.size()));
+            if (!picked.contains(trait)) {
+                picked.add(trait);
+            }
+        }
+        return picked.stream().map(t -> '"' + t + '"').collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static <T> T[] withNull(T[] values) {
+        T[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = null;
+        return result;
+    }
+}
@@ -0,0 +1,13 @@
+package com.sakny.common.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+
+/**
+ * A cache that evicts many keys at once, in fewer round trips than one {@link #evict} per key.
+ */
+public interface BatchEvictingCache extends Cache {
+
+    void evictAll(Collection<?> keys);
+}
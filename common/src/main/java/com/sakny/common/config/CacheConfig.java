@@ -1,18 +1,15 @@
 package com.sakny.common.config;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -21,16 +18,22 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Enables Spring's cache abstraction backed by Redis.
+ * Enables Spring's cache abstraction backed by Redis, with a local Caffeine tier in front of it
+ * ({@link TwoTierCacheManager}, sized by {@link LocalCacheProperties}) unless that is disabled.
  *
- * <p>Values are stored as JSON via {@link GenericJackson2JsonRedisSerializer} so cached entries are
- * human-readable in Redis and round-trip back to their concrete types. Default typing is enabled and
- * the JSR-310 module is registered because cached DTOs carry {@code LocalDate}/{@code LocalDateTime}/
- * {@code BigDecimal} fields.
+ * <p>Values are stored by {@link CacheValueSerializer} in the format chosen per cache by
+ * {@link CacheSerializationProperties}: human-readable JSON by default, Smile and optionally LZ4 for
+ * the bulky property caches. Either way they round-trip back to their concrete types.
  *
  * <p>Each cache has its own TTL: reference data (governorates, cities, amenities) is effectively
  * static and kept for a day, single property reads for 30 minutes, and filtered listings for 5
- * minutes since they change more often and are evicted on writes.
+ * minutes since they change more often. Listings are evicted on writes by tag (see
+ * {@code PropertyListingCache} in the property module) rather than all at once. Match scores are keyed by both
+ * profiles' versions, so an edit makes old entries unreachable instead of evicting them; their TTL only
+ * bounds how long the orphans linger.
+ *
+ * <p>Hit/miss counts are published per cache and tier as {@code sakny.cache.gets}. Without the local
+ * tier, Redis statistics are published as {@code cache.gets} instead.
  */
 @Configuration
 @EnableCaching
@@ -41,41 +44,52 @@ public class CacheConfig {
     public static final String AMENITIES = "amenities";
     public static final String PROPERTIES = "properties";
     public static final String PROPERTY_LISTINGS = "propertyListings";
+    public static final String MATCH_SCORES = "matchScores";
+
+    public static final Duration PROPERTY_LISTINGS_TTL = Duration.ofMinutes(5);
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        GenericJackson2JsonRedisSerializer valueSerializer =
-                new GenericJackson2JsonRedisSerializer(buildObjectMapper());
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     StringRedisTemplate redisTemplate,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     LocalCacheProperties localCacheProperties,
+                                     CacheSerializationProperties serializationProperties,
+                                     MeterRegistry meterRegistry) {
+        RedisCacheManager redisCacheManager = redisCacheManager(connectionFactory, serializationProperties);
+        if (!localCacheProperties.isEnabled()) {
+            return redisCacheManager;
+        }
+        redisCacheManager.afterPropertiesSet();
+        return new TwoTierCacheManager(redisCacheManager, localCacheProperties, redisTemplate,
+                listenerContainer, meterRegistry);
+    }
 
+    private RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory,
+                                                CacheSerializationProperties serializationProperties) {
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .disableCachingNullValues()
                 .serializeKeysWith(RedisSerializationContext.SerializationPair
-                        .fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair
-                        .fromSerializer(valueSerializer));
+                        .fromSerializer(new StringRedisSerializer()));
+
+        Map<String, Duration> ttls = Map.of(
+                GOVERNORATES, Duration.ofHours(24),
+                CITIES_BY_GOVERNORATE, Duration.ofHours(24),
+                AMENITIES, Duration.ofHours(24),
+                PROPERTIES, Duration.ofMinutes(30),
+                PROPERTY_LISTINGS, PROPERTY_LISTINGS_TTL,
+                MATCH_SCORES, Duration.ofDays(7));
 
         Map<String, RedisCacheConfiguration> caches = new HashMap<>();
-        caches.put(GOVERNORATES, defaultConfig.entryTtl(Duration.ofHours(24)));
-        caches.put(CITIES_BY_GOVERNORATE, defaultConfig.entryTtl(Duration.ofHours(24)));
-        caches.put(AMENITIES, defaultConfig.entryTtl(Duration.ofHours(24)));
-        caches.put(PROPERTIES, defaultConfig.entryTtl(Duration.ofMinutes(30)));
-        caches.put(PROPERTY_LISTINGS, defaultConfig.entryTtl(Duration.ofMinutes(5)));
+        ttls.forEach((name, ttl) -> caches.put(name, defaultConfig
+                .entryTtl(ttl)
+                .serializeValuesWith(RedisSerializationContext.SerializationPair
+                        .fromSerializer(serializationProperties.serializerFor(name)))));
 
         return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(defaultConfig)
+                .cacheDefaults(defaultConfig.serializeValuesWith(RedisSerializationContext.SerializationPair
+                        .fromSerializer(serializationProperties.serializerFor(null))))
                 .withInitialCacheConfigurations(caches)
+                .enableStatistics()
                 .build();
     }
-
-    private ObjectMapper buildObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        // Embed type information so polymorphic / generic values deserialize back to their real types.
-        mapper.activateDefaultTyping(
-                LaissezFaireSubTypeValidator.instance,
-                ObjectMapper.DefaultTyping.NON_FINAL,
-                JsonTypeInfo.As.PROPERTY);
-        return mapper;
-    }
 }
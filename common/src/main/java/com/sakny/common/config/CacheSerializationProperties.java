@@ -0,0 +1,50 @@
+package com.sakny.common.config;
+
+import com.sakny.common.config.CacheValueSerializer.Format;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How values are stored in Redis, per cache ({@link CacheValueSerializer}).
+ *
+ * <p>Caches not named in {@code caches}, and settings left unset there, use {@code format} and
+ * {@code compressAbove}. Property reads and listing pages default to Smile, and listing pages are
+ * LZ4-compressed above 1 KiB; reference data and match scores stay JSON. A negative
+ * {@code compressAbove} disables compression.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sakny.cache.serialization")
+public class CacheSerializationProperties {
+
+    private Format format = Format.JSON;
+    private int compressAbove = -1;
+    private Map<String, Codec> caches = new HashMap<>(Map.of(
+            CacheConfig.PROPERTIES, new Codec(Format.SMILE, null),
+            CacheConfig.PROPERTY_LISTINGS, new Codec(Format.SMILE, 1024)));
+
+    public CacheValueSerializer serializerFor(String cacheName) {
+        Codec codec = caches.get(cacheName);
+        Format cacheFormat = codec != null && codec.getFormat() != null ? codec.getFormat() : format;
+        int threshold = codec != null && codec.getCompressAbove() != null ? codec.getCompressAbove() : compressAbove;
+        return new CacheValueSerializer(cacheFormat, threshold);
+    }
+
+    @Data
+    public static class Codec {
+        private Format format;
+        private Integer compressAbove;
+
+        public Codec() {
+        }
+
+        public Codec(Format format, Integer compressAbove) {
+            this.format = format;
+            this.compressAbove = compressAbove;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.sakny.common.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Cache value serializer writing JSON or Smile (Jackson's binary JSON), optionally LZ4-compressed
+ * above a size threshold.
+ *
+ * <p>Both formats use the same mapper settings: default typing, so values round-trip to their
+ * concrete types, and the JSR-310 module. Smile writes field names and repeated {@code @class} values
+ * once per document and refers back to them afterwards. Values are read in whichever form they were
+ * written, recognised by their first bytes, so a cache can switch format without being flushed.
+ */
+public class CacheValueSerializer implements RedisSerializer<Object> {
+
+    public enum Format { JSON, SMILE }
+
+    // Neither JSON nor Smile (":)\n") starts with a zero byte
+    private static final byte[] LZ4_MAGIC = {0, 'L', 'Z', '4'};
+    private static final int LZ4_HEADER = LZ4_MAGIC.length + Integer.BYTES;
+    private static final byte[] SMILE_MAGIC = {':', ')', '\n'};
+
+    private static final ObjectMapper JSON_MAPPER = buildObjectMapper(new JsonFactory());
+    private static final ObjectMapper SMILE_MAPPER = buildObjectMapper(SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build());
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+
+    private final Format format;
+    private final int compressAbove;
+
+    /**
+     * @param compressAbove serialized size in bytes above which values are compressed; negative
+     *                      disables compression
+     */
+    public CacheValueSerializer(Format format, int compressAbove) {
+        this.format = format;
+        this.compressAbove = compressAbove;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes;
+        try {
+            bytes = (format == Format.SMILE ? SMILE_MAPPER : JSON_MAPPER).writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new SerializationException("Could not write cache value: " + e.getMessage(), e);
+        }
+        return compressAbove >= 0 && bytes.length > compressAbove ? compress(bytes) : bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (startsWith(bytes, LZ4_MAGIC)) {
+            bytes = decompress(bytes);
+        }
+        try {
+            return (startsWith(bytes, SMILE_MAGIC) ? SMILE_MAPPER : JSON_MAPPER).readValue(bytes, Object.class);
+        } catch (Exception e) {
+            throw new SerializationException("Could not read cache value: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        byte[] out = new byte[LZ4_HEADER + COMPRESSOR.maxCompressedLength(bytes.length)];
+        int length = COMPRESSOR.compress(bytes, 0, bytes.length, out, LZ4_HEADER);
+        if (LZ4_HEADER + length >= bytes.length) {
+            return bytes; // incompressible
+        }
+        ByteBuffer.wrap(out).put(LZ4_MAGIC).putInt(bytes.length);
+        return Arrays.copyOf(out, LZ4_HEADER + length);
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        try {
+            int length = ByteBuffer.wrap(bytes, LZ4_MAGIC.length, Integer.BYTES).getInt();
+            byte[] out = new byte[length];
+            int read = DECOMPRESSOR.decompress(bytes, LZ4_HEADER, bytes.length - LZ4_HEADER, out, 0);
+            if (read != length) {
+                throw new SerializationException("Truncated compressed cache value");
+            }
+            return out;
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SerializationException("Could not decompress cache value: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static ObjectMapper buildObjectMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.registerModule(new JavaTimeModule());
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        // Embed type information so polymorphic / generic values deserialize back to their real types.
+        mapper.activateDefaultTyping(
+                LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY);
+        return mapper;
+    }
+}
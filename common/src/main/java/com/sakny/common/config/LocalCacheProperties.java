@@ -0,0 +1,50 @@
+package com.sakny.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sizing of the in-process cache tier in front of Redis.
+ *
+ * <p>Each cache named in {@code caches} keeps at most {@code maximumSize} entries for at most
+ * {@code ttl} after they were written; caches not listed use {@code defaults}. A local TTL should not
+ * exceed the cache's Redis TTL. With {@code enabled} off every read goes to Redis, as before.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sakny.cache.local")
+public class LocalCacheProperties {
+
+    private boolean enabled = true;
+    private Tier defaults = new Tier(1000, Duration.ofMinutes(1));
+    private Map<String, Tier> caches = new HashMap<>(Map.of(
+            CacheConfig.GOVERNORATES, new Tier(10, Duration.ofHours(1)),
+            CacheConfig.CITIES_BY_GOVERNORATE, new Tier(100, Duration.ofHours(1)),
+            CacheConfig.AMENITIES, new Tier(10, Duration.ofHours(1)),
+            CacheConfig.PROPERTIES, new Tier(10000, Duration.ofMinutes(1)),
+            CacheConfig.PROPERTY_LISTINGS, new Tier(2000, Duration.ofSeconds(30)),
+            CacheConfig.MATCH_SCORES, new Tier(50000, Duration.ofMinutes(10))));
+
+    public Tier forCache(String name) {
+        return caches.getOrDefault(name, defaults);
+    }
+
+    @Data
+    public static class Tier {
+        private long maximumSize;
+        private Duration ttl;
+
+        public Tier() {
+        }
+
+        public Tier(long maximumSize, Duration ttl) {
+            this.maximumSize = maximumSize;
+            this.ttl = ttl;
+        }
+    }
+}
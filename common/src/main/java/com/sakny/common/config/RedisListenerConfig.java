@@ -0,0 +1,87 @@
+package com.sakny.common.config;
+
+import com.sakny.common.event.RedisMessagesDroppedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The one Redis pub/sub subscriber of this node. Components that listen on a channel (cache and
+ * block-list invalidations, principal evictions, the WebSocket relay) register on this container
+ * instead of opening their own subscriber connection.
+ *
+ * <p>Messages are handed to the listeners by a single thread, so each channel is processed in the
+ * order it was published; the listeners only touch memory or hand off to another executor. When
+ * {@value #LISTENER_QUEUE_CAPACITY} messages are waiting, further messages are dropped rather than
+ * stalling the Redis client's I/O thread, and counted as {@code sakny.redis.listener.dropped}. Before
+ * the next message is handled, a {@link RedisMessagesDroppedEvent} tells the listeners to clear what
+ * the dropped invalidations might have covered; dropped WebSocket frames are lost. The container
+ * starts with the application context and keeps retrying its subscription while Redis is unreachable;
+ * its listener thread stops with it.
+ */
+@Configuration
+@Slf4j
+public class RedisListenerConfig {
+
+    static final int LISTENER_QUEUE_CAPACITY = 10_000;
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       ApplicationEventPublisher eventPublisher,
+                                                                       MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = listenerExecutor(eventPublisher, meterRegistry);
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public void destroy() throws Exception {
+                try {
+                    super.destroy();
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(executor);
+        return container;
+    }
+
+    private static ThreadPoolExecutor listenerExecutor(ApplicationEventPublisher eventPublisher,
+                                                       MeterRegistry meterRegistry) {
+        Counter dropped = Counter.builder("sakny.redis.listener.dropped")
+                .description("Redis pub/sub messages dropped because the listener queue was full")
+                .register(meterRegistry);
+        AtomicBoolean clearPending = new AtomicBoolean();
+        return new ThreadPoolExecutor(
+                1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(LISTENER_QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "redis-listener");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, e) -> {
+                    dropped.increment();
+                    if (!clearPending.getAndSet(true)) {
+                        log.warn("Redis listener queue full, dropping messages");
+                    }
+                }) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                if (clearPending.getAndSet(false)) {
+                    eventPublisher.publishEvent(new RedisMessagesDroppedEvent());
+                }
+            }
+        };
+    }
+}
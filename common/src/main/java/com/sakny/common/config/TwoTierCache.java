@@ -0,0 +1,166 @@
+package com.sakny.common.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * One cache of {@link TwoTierCacheManager}: reads try the local Caffeine tier, then Redis, and keep
+ * what Redis returned locally. Writes go to both tiers and are announced so other nodes drop their
+ * local copy. Local values are shared between callers and must not be modified.
+ */
+class TwoTierCache implements BatchEvictingCache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final StringRedisTemplate redisTemplate;
+    private final BiConsumer<String, Collection<String>> invalidations;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+
+    TwoTierCache(String name,
+                 com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+                 Cache remote,
+                 StringRedisTemplate redisTemplate,
+                 BiConsumer<String, Collection<String>> invalidations,
+                 MeterRegistry meterRegistry) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.redisTemplate = redisTemplate;
+        this.invalidations = invalidations;
+        this.localHits = gets(meterRegistry, "l1", "hit");
+        this.localMisses = gets(meterRegistry, "l1", "miss");
+        this.remoteHits = gets(meterRegistry, "l2", "hit");
+        this.remoteMisses = gets(meterRegistry, "l2", "miss");
+    }
+
+    private Counter gets(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("sakny.cache.gets")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .description("Cache lookups per tier; l2 is only consulted on an l1 miss")
+                .register(meterRegistry);
+    }
+
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object value = local.getIfPresent(localKey(key));
+        if (value != null) {
+            localHits.increment();
+            return new SimpleValueWrapper(value);
+        }
+        localMisses.increment();
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null || wrapper.get() == null) {
+            remoteMisses.increment();
+            return wrapper;
+        }
+        remoteHits.increment();
+        local.put(localKey(key), wrapper.get());
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            return (T) wrapper.get();
+        }
+        T value = remote.get(key, valueLoader);
+        if (value != null) {
+            local.put(localKey(key), value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        invalidations.accept(name, List.of(localKey(key)));
+        if (value != null) {
+            local.put(localKey(key), value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.invalidate(localKey(key));
+        invalidations.accept(name, List.of(localKey(key)));
+    }
+
+    /** One DEL for all keys in Redis, and one invalidation message. */
+    @Override
+    public void evictAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> localKeys = keys.stream().map(TwoTierCache::localKey).toList();
+        if (remote instanceof RedisCache redisCache) {
+            String prefix = redisCache.getCacheConfiguration().usePrefix()
+                    ? redisCache.getCacheConfiguration().getKeyPrefixFor(name)
+                    : "";
+            redisTemplate.delete(localKeys.stream().map(key -> prefix + key).toList());
+        } else {
+            keys.forEach(remote::evict);
+        }
+        local.invalidateAll(localKeys);
+        invalidations.accept(name, localKeys);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        invalidations.accept(name, null);
+    }
+
+    void invalidateLocal(String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+}
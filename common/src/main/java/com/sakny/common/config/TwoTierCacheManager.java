@@ -0,0 +1,129 @@
+package com.sakny.common.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sakny.common.event.RedisMessagesDroppedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Puts a bounded Caffeine tier (L1) in front of each cache of a Redis cache manager (L2).
+ *
+ * <p>Every put, evict and clear is published on {@value #INVALIDATION_CHANNEL}, a batch eviction as
+ * one message; other nodes drop the entry from their L1 and read it from Redis next time. Missed
+ * messages, e.g. while Redis is unreachable, are bounded by the L1 TTL. Lookups are counted per
+ * cache and tier as {@code sakny.cache.gets}.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, MessageListener {
+
+    static final String INVALIDATION_CHANNEL = "sakny:cache:invalidations";
+
+    private final CacheManager remote;
+    private final LocalCacheProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager remote,
+                               LocalCacheProperties properties,
+                               StringRedisTemplate redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoTierCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remoteCache = remote.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> create(n, remoteCache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    private TwoTierCache create(String name, Cache remoteCache) {
+        LocalCacheProperties.Tier tier = properties.forCache(name);
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumSize(tier.getMaximumSize())
+                .expireAfterWrite(tier.getTtl())
+                .build();
+        Gauge.builder("sakny.cache.size", local, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+                .tag("cache", name)
+                .tag("tier", "l1")
+                .description("Entries held in the local tier")
+                .register(meterRegistry);
+        return new TwoTierCache(name, local, remoteCache, redisTemplate, this::publish, meterRegistry);
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Cross-node invalidation: "<node>\n<cache>" clears, "<node>\n<cache>\n<key>[\n<key>...]" evicts
+    // ------------------------------------------------------------------ //
+
+    private void publish(String cacheName, Collection<String> keys) {
+        // A key holding the separator cannot be told apart from two keys; clear instead
+        boolean clear = keys == null || keys.stream().anyMatch(key -> key.indexOf('\n') >= 0);
+        String message = nodeId + "\n" + cacheName + (clear ? "" : "\n" + String.join("\n", keys));
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("Could not publish local cache invalidation for {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n");
+        if (parts.length < 2) {
+            log.warn("Ignoring malformed local cache invalidation");
+            return;
+        }
+        if (nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoTierCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts.length == 2) {
+            cache.invalidateLocal(null);
+        }
+        for (int i = 2; i < parts.length; i++) {
+            cache.invalidateLocal(parts[i]);
+        }
+    }
+
+    @EventListener
+    public void onMessagesDropped(RedisMessagesDroppedEvent event) {
+        caches.values().forEach(cache -> cache.invalidateLocal(null));
+    }
+}
@@ -0,0 +1,19 @@
+package com.sakny.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatchExplanationResponse {
+    private Long userId;
+    private double score;
+    private String explanation;
+    private List<String> discussionTopics;
+}
@@ -1,5 +1,6 @@
 package com.sakny.common.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,7 +19,10 @@ public class MatchScoreResponse {
     private Map<String, Double> breakdown;
     private List<String> strengths;
     private List<String> conflicts;
+    // Only set on single compatibility lookups; listings leave them out of the payload
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String explanation;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<String> discussionTopics;
     private ProfileResponse profile;
 }
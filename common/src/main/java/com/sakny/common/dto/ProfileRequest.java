@@ -58,8 +58,10 @@ public class ProfileRequest {
     // === Step 2: Personality ===
 
     @NotEmpty(message = "At least one personality trait is required")
+    @Size(max = 10, message = "At most 10 personality traits are allowed")
     @Schema(description = "List of personality traits", example = "[\"QUIET\", \"SOCIAL\", \"ORGANIZED\"]")
-    private List<String> personalityTraits;
+    private List<@NotBlank(message = "Personality traits must not be blank")
+            @Size(max = 50, message = "Personality traits must be at most 50 characters") String> personalityTraits;
 
     // === Step 3: Lifestyle ===
 
@@ -47,7 +47,9 @@ public class ProfileUpdateRequest {
 
     // === Step 2: Personality ===
 
-    private List<String> personalityTraits;
+    @Size(max = 10, message = "At most 10 personality traits are allowed")
+    private List<@NotBlank(message = "Personality traits must not be blank")
+            @Size(max = 50, message = "Personality traits must be at most 50 characters") String> personalityTraits;
 
     // === Step 3: Lifestyle ===
 
@@ -0,0 +1,9 @@
+package com.sakny.common.event;
+
+/**
+ * Published when messages received from Redis pub/sub were dropped because their listeners fell too
+ * far behind. Listeners keeping local state that other nodes invalidate through Redis should clear it,
+ * as the invalidations they missed cannot be told apart.
+ */
+public record RedisMessagesDroppedEvent() {
+}
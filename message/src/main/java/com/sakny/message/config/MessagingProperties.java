@@ -0,0 +1,67 @@
+package com.sakny.message.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tuning for WebSocket delivery of chat messages and online presence.
+ *
+ * <p>Frames are pushed by {@code deliveryThreads} workers. At most {@code deliveryQueueCapacity}
+ * receivers can wait for a worker; beyond that, the committing request thread delivers itself.
+ *
+ * <p>With a multi-node broker, each node's sessions are mirrored to Redis and expire after
+ * {@code presenceTtl} unless the node heartbeats them. Presence changes are announced to
+ * conversation partners every {@code presenceBroadcastInterval}.
+ *
+ * <p>{@code nodeId} (0-31) goes into every message ID this node generates for write-behind; each node
+ * needs its own, and write-behind refuses to start without one.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sakny.messaging")
+public class MessagingProperties {
+    private int deliveryThreads = 2;
+    private int deliveryQueueCapacity = 10_000;
+    private Duration presenceTtl = Duration.ofSeconds(60);
+    private Duration presenceBroadcastInterval = Duration.ofSeconds(1);
+    private Integer nodeId;
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    /**
+     * Batched persistence of sent messages. Off by default: every message is inserted by its own
+     * request and numbered by the database. When on, the node assigns IDs, and messages are queued
+     * after the request's transaction commits and inserted by one writer thread in batches of up to
+     * {@code batchSize}, waiting up to {@code flushInterval} for a batch to fill.
+     *
+     * <ul>
+     *   <li>{@code flushed}: the request commits once its batch has committed (group commit).
+     *       Nothing acknowledged is lost, and a message that fails or times out fails its request
+     *       before it is delivered; latency grows by up to one flush interval.</li>
+     *   <li>{@code buffered}: the request returns and the message is pushed to the receiver
+     *       immediately. Messages still queued are lost if the node dies, and history can lag the
+     *       pushed message by up to a flush. Marking the pushed message read, or paging history
+     *       from it, waits for the insert when it is queued on the same node; on another node it
+     *       fails as not found until the insert lands.</li>
+     * </ul>
+     *
+     * If the queue stays full for {@code enqueueTimeout}, the request inserts its message itself.
+     */
+    @Data
+    public static class WriteBehind {
+
+        public enum Durability { FLUSHED, BUFFERED }
+
+        private boolean enabled = false;
+        private Durability durability = Durability.FLUSHED;
+        private int queueCapacity = 10_000;
+        private int batchSize = 200;
+        private Duration flushInterval = Duration.ofMillis(5);
+        private Duration enqueueTimeout = Duration.ofMillis(50);
+        private Duration flushTimeout = Duration.ofSeconds(5);
+        private boolean flushOnShutdown = true;
+    }
+}
@@ -0,0 +1,136 @@
+package com.sakny.message.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cross-node delivery of user destinations for {@code sakny.websocket.broker.mode=redis}.
+ *
+ * <p>When {@code convertAndSendToUser} targets a user with no session on this node, Spring's
+ * {@link UserDestinationMessageHandler} re-sends the message to
+ * {@link WebSocketConfig#UNRESOLVED_USER_DESTINATION} on the broker channel. This interceptor
+ * publishes those messages to Redis; every other node hands them back to its own
+ * {@code UserDestinationMessageHandler}, which delivers them if it holds one of the user's sessions
+ * and drops them otherwise. This is the same protocol the STOMP broker relay uses, with Redis
+ * pub/sub standing in for the broker. As there, a message that resolves locally is not fanned out,
+ * so a user connected to several nodes at once only gets it on the sending node's sessions.
+ */
+@Component
+@ConditionalOnProperty(prefix = "sakny.websocket.broker", name = "mode", havingValue = "redis")
+@Slf4j
+public class RedisUserDestinationRelay implements ChannelInterceptor, MessageListener, SmartInitializingSingleton {
+
+    // Any non-null session id marks a message as a broadcast received from elsewhere
+    private static final String RELAY_SESSION_ID = "redis-relay";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final String channel;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectProvider<UserDestinationMessageHandler> userDestinationMessageHandler;
+
+    public RedisUserDestinationRelay(WebSocketBrokerProperties properties,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     StringRedisTemplate redisTemplate,
+                                     ObjectProvider<UserDestinationMessageHandler> userDestinationMessageHandler) {
+        this.channel = properties.getRedisChannel();
+        this.redisTemplate = redisTemplate;
+        this.userDestinationMessageHandler = userDestinationMessageHandler;
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    /**
+     * Runs once the broker infrastructure exists: unlike the broker relay, the simple broker
+     * registration has no setting for the broadcast destination, so it is set on the handler here.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        userDestinationMessageHandler.getObject().setBroadcastDestination(WebSocketConfig.UNRESOLVED_USER_DESTINATION);
+        log.info("WebSocket user destinations fan out over Redis channel '{}' (node {})", channel, nodeId);
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Outbound: locally unresolved user messages → Redis
+    // ------------------------------------------------------------------ //
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel messageChannel) {
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        // A null session id means this node's own broadcast, not one we relayed in
+        if (accessor != null
+                && WebSocketConfig.UNRESOLVED_USER_DESTINATION.equals(accessor.getDestination())
+                && accessor.getSessionId() == null) {
+            publish(message, accessor);
+        }
+        return message;
+    }
+
+    private void publish(Message<?> message, SimpMessageHeaderAccessor accessor) {
+        Map<String, List<String>> headers = new LinkedHashMap<>(accessor.toNativeHeaderMap());
+        MimeType contentType = accessor.getContentType();
+        if (contentType != null) {
+            headers.putIfAbsent("content-type", List.of(contentType.toString()));
+        }
+        byte[] payload = message.getPayload() instanceof byte[] bytes
+                ? bytes
+                : String.valueOf(message.getPayload()).getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.convertAndSend(channel, MAPPER.writeValueAsString(new Envelope(nodeId, headers, payload)));
+        } catch (Exception e) {
+            log.warn("Could not relay user message for {} over Redis: {}",
+                    accessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION), e.getMessage());
+        }
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Inbound: other nodes' unresolved user messages → local sessions
+    // ------------------------------------------------------------------ //
+
+    @Override
+    public void onMessage(org.springframework.data.redis.connection.Message redisMessage, byte[] pattern) {
+        Envelope envelope;
+        try {
+            envelope = MAPPER.readValue(redisMessage.getBody(), Envelope.class);
+        } catch (Exception e) {
+            log.warn("Dropping malformed relayed WebSocket message: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(envelope.origin())) {
+            return;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(WebSocketConfig.UNRESOLVED_USER_DESTINATION);
+        accessor.setSessionId(RELAY_SESSION_ID);
+        envelope.headers().forEach((name, values) -> values.forEach(value -> accessor.addNativeHeader(name, value)));
+
+        userDestinationMessageHandler.getObject()
+                .handleMessage(MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders()));
+    }
+
+    record Envelope(String origin, Map<String, List<String>> headers, byte[] payload) {}
+}
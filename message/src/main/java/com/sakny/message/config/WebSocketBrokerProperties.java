@@ -0,0 +1,43 @@
+package com.sakny.message.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Which message broker backs the STOMP endpoint.
+ *
+ * <ul>
+ *   <li>{@code simple}: in-memory broker; user destinations only reach sessions on this node.
+ *       Fine for a single instance.</li>
+ *   <li>{@code redis}: in-memory broker per node, plus Redis pub/sub fan-out of user messages the
+ *       local node cannot deliver, so they reach whichever node holds the user's session.</li>
+ *   <li>{@code relay}: full STOMP broker (RabbitMQ, ActiveMQ) through Spring's broker relay; the
+ *       broker delivers across nodes and the user registry is shared between them.</li>
+ * </ul>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sakny.websocket.broker")
+public class WebSocketBrokerProperties {
+
+    public enum Mode { SIMPLE, REDIS, RELAY }
+
+    private Mode mode = Mode.SIMPLE;
+
+    /** Redis pub/sub channel for {@code redis} mode. */
+    private String redisChannel = "sakny:ws:user-destinations";
+
+    private Relay relay = new Relay();
+
+    @Data
+    public static class Relay {
+        private String host = "localhost";
+        private int port = 61613;
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+        private String virtualHost;
+    }
+}
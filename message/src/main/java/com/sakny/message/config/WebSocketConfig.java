@@ -1,6 +1,8 @@
 package com.sakny.message.config;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -10,19 +12,61 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @Configuration
 @EnableWebSocketMessageBroker
 @RequiredArgsConstructor
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    /*
+     * Broker-internal destinations. They stay under /topic because an external broker only accepts
+     * its own destination forms; WebSocketSecurityConfig rejects client frames addressed to them.
+     */
+
+    /** Where user messages nobody on this node can take are re-sent, for other nodes to deliver. */
+    public static final String UNRESOLVED_USER_DESTINATION = "/topic/unresolved-user-destination";
+
+    /** Where nodes share their connected users in relay mode (multi-server user registry). */
+    public static final String USER_REGISTRY_DESTINATION = "/topic/simp-user-registry";
+
+    public static boolean isBrokerInternal(String destination) {
+        return destination.startsWith(UNRESOLVED_USER_DESTINATION) || destination.startsWith(USER_REGISTRY_DESTINATION);
+    }
+
+    private final WebSocketBrokerProperties brokerProperties;
+    private final ObjectProvider<RedisUserDestinationRelay> redisRelay;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         /*
-         * Enable a simple in-memory broker for:
+         * Broker for:
          *   - /topic  → broadcast (one-to-many)
          *   - /queue  → personal queues (one-to-one), used with convertAndSendToUser
          *
-         * For production consider replacing the in-memory broker with a
-         * full-featured broker (RabbitMQ / ActiveMQ) using registry.enableStompBrokerRelay()
+         * The mode (sakny.websocket.broker.mode) decides how far messages reach:
+         *   - simple → in-memory, this node only
+         *   - redis  → in-memory, plus Redis fan-out of user messages to the other nodes
+         *   - relay  → external STOMP broker (RabbitMQ / ActiveMQ), all nodes
          */
-        registry.enableSimpleBroker("/topic", "/queue");
+        switch (brokerProperties.getMode()) {
+            case SIMPLE -> registry.enableSimpleBroker("/topic", "/queue");
+            case REDIS -> {
+                // The relay also points the user destination handler at UNRESOLVED_USER_DESTINATION
+                registry.enableSimpleBroker("/topic", "/queue");
+                registry.configureBrokerChannel().interceptors(redisRelay.getObject());
+            }
+            case RELAY -> {
+                WebSocketBrokerProperties.Relay relay = brokerProperties.getRelay();
+                registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relay.getHost())
+                    .setRelayPort(relay.getPort())
+                    .setClientLogin(relay.getClientLogin())
+                    .setClientPasscode(relay.getClientPasscode())
+                    .setSystemLogin(relay.getSystemLogin())
+                    .setSystemPasscode(relay.getSystemPasscode())
+                    .setVirtualHost(relay.getVirtualHost())
+                    .setUserDestinationBroadcast(UNRESOLVED_USER_DESTINATION)
+                    .setUserRegistryBroadcast(USER_REGISTRY_DESTINATION);
+            }
+        }
+        log.info("STOMP broker mode: {}", brokerProperties.getMode());
 
         /*
          * Application-specific prefix. Messages sent to /app/... are
@@ -1,8 +1,12 @@
 package com.sakny.message.config;
 
+import com.sakny.message.service.PresenceService;
+import com.sakny.user.entity.User;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
@@ -10,19 +14,25 @@ import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import java.security.Principal;
 
 /**
- * Listens to WebSocket lifecycle events for observability.
- * Extend this class to track online presence, notify other users, etc.
+ * Listens to WebSocket lifecycle events and feeds them to {@link PresenceService}.
  */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class WebSocketEventListener {
 
+    private final PresenceService presenceService;
+
     @EventListener
     public void handleSessionConnected(SessionConnectedEvent event) {
         StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
         Principal user = accessor.getUser();
         if (user != null) {
             log.info("WebSocket CONNECTED – user={} session={}", user.getName(), accessor.getSessionId());
+            Long userId = userId(user);
+            if (userId != null) {
+                presenceService.connected(userId, accessor.getSessionId());
+            }
         }
     }
 
@@ -32,6 +42,17 @@ public class WebSocketEventListener {
         Principal user = accessor.getUser();
         if (user != null) {
             log.info("WebSocket DISCONNECTED – user={} session={}", user.getName(), accessor.getSessionId());
+            Long userId = userId(user);
+            if (userId != null) {
+                presenceService.disconnected(userId, accessor.getSessionId());
+            }
         }
     }
+
+    // The CONNECT interceptor in WebSocketSecurityConfig authenticates sessions with the User entity
+    private static Long userId(Principal principal) {
+        return principal instanceof Authentication auth && auth.getPrincipal() instanceof User user
+                ? user.getId()
+                : null;
+    }
 }
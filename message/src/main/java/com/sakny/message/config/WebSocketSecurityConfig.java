@@ -1,5 +1,6 @@
 package com.sakny.message.config;
 
+import com.sakny.auth.service.AuthenticatedPrincipalCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
@@ -9,9 +10,9 @@ import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 /**
@@ -19,25 +20,23 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  * validates it, and sets a SecurityContext so that @AuthenticationPrincipal
  * works inside @MessageMapping methods.
  *
- * Wire-up: your existing JwtService must be injectable here.
- * Replace the placeholder call with your actual validation method.
+ * Tokens are resolved through {@link AuthenticatedPrincipalCache}.
+ *
+ * Also refuses client SUBSCRIBE and SEND frames for the broker-internal destinations
+ * (see {@link WebSocketConfig#isBrokerInternal}) and for destination patterns, which
+ * would match them: those carry every user's private messages between nodes.
  */
 @Configuration
 public class WebSocketSecurityConfig implements WebSocketMessageBrokerConfigurer {
 
     /**
-     * Replace these with your actual JWT service and UserDetailsService beans.
-     * Example injection shown here; adapt as needed.
+     * Shared with JwtAuthenticationFilter, so a reconnect storm is served from
+     * memory instead of re-parsing every token and re-loading every user.
      */
-    private final com.sakny.auth.service.JwtService jwtService;          // adjust package
-    private final UserDetailsService userDetailsService;
+    private final AuthenticatedPrincipalCache principalCache;
 
-    public WebSocketSecurityConfig(
-        com.sakny.auth.service.JwtService jwtService,                    // adjust package
-        UserDetailsService userDetailsService
-    ) {
-        this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+    public WebSocketSecurityConfig(AuthenticatedPrincipalCache principalCache) {
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -48,17 +47,21 @@ public class WebSocketSecurityConfig implements WebSocketMessageBrokerConfigurer
                 StompHeaderAccessor accessor =
                     MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
 
+                if (accessor != null
+                        && (StompCommand.SUBSCRIBE.equals(accessor.getCommand()) || StompCommand.SEND.equals(accessor.getCommand()))
+                        && !isClientDestination(accessor.getDestination())) {
+                    throw new AccessDeniedException("Destination not allowed: " + accessor.getDestination());
+                }
+
                 if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
                     String authHeader = accessor.getFirstNativeHeader("Authorization");
 
                     if (authHeader != null && authHeader.startsWith("Bearer ")) {
                         String token = authHeader.substring(7);
 
-                        // ── Replace with your actual JWT extraction/validation ──
-                        String username = jwtService.extractUsername(token);
-                        var userDetails = userDetailsService.loadUserByUsername(username);
+                        var userDetails = principalCache.authenticate(token);
 
-                        if (jwtService.isTokenValid(token, userDetails)) {
+                        if (userDetails != null) {
                             var auth = new UsernamePasswordAuthenticationToken(
                                 userDetails,
                                 null,
@@ -74,4 +77,11 @@ public class WebSocketSecurityConfig implements WebSocketMessageBrokerConfigurer
             }
         });
     }
+
+    // Wildcards are patterns for both the simple broker (Ant-style) and RabbitMQ (* and #)
+    private static boolean isClientDestination(String destination) {
+        return destination != null
+                && !WebSocketConfig.isBrokerInternal(destination)
+                && destination.chars().noneMatch(c -> c == '*' || c == '#' || c == '?' || c == '{');
+    }
 }
@@ -1,14 +1,16 @@
 package com.sakny.message.controller;
 
+import com.sakny.message.dto.request.ChatHistoryRequest;
 import com.sakny.message.dto.request.ChatMessageRequest;
 import com.sakny.message.dto.request.SendMessageRequest;
-import com.sakny.message.dto.response.MessageResponse;
+import com.sakny.message.dto.response.MessageHistoryResponse;
 import com.sakny.message.service.MessageService;
 import com.sakny.user.entity.User;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 
@@ -31,6 +33,16 @@ import org.springframework.stereotype.Controller;
  *           receiverId: 42,
  *           content: 'Hello!'
  *       }));
+ *
+ *       // Load history: replies arrive on /user/queue/history
+ *       stompClient.subscribe('/user/queue/history', (frame) => {
+ *           const slice = JSON.parse(frame.body); // { messages, nextBefore, hasMore }
+ *       });
+ *       stompClient.send('/app/chat.history', {}, JSON.stringify({
+ *           otherUserId: 42,
+ *           before: null,   // or the previous slice's nextBefore
+ *           limit: 20
+ *       }));
  *   });
  */
 @Controller
@@ -58,4 +70,20 @@ public class ChatController {
         messageService.sendMessage(sender.getId(), serviceRequest);
         // The service layer calls SimpMessagingTemplate to push to the receiver.
     }
+
+    /**
+     * Destination: /app/chat.history
+     *
+     * Replies to the requesting session only (/user/queue/history)
+     * with one keyset-paginated slice of the conversation history.
+     */
+    @MessageMapping("/chat.history")
+    @SendToUser(destinations = "/queue/history", broadcast = false)
+    public MessageHistoryResponse history(
+        @AuthenticationPrincipal User user,
+        @Valid @Payload ChatHistoryRequest request
+    ) {
+        return messageService.getMessageHistory(
+            user.getId(), request.getOtherUserId(), request.getBefore(), request.getLimit());
+    }
 }
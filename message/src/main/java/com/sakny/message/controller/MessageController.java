@@ -3,6 +3,7 @@ package com.sakny.message.controller;
 import com.sakny.common.dto.ApiResponse;
 import com.sakny.message.dto.request.SendMessageRequest;
 import com.sakny.message.dto.response.ConversationResponse;
+import com.sakny.message.dto.response.MessageHistoryResponse;
 import com.sakny.message.dto.response.MessageResponse;
 import com.sakny.message.service.MessageService;
 import com.sakny.user.entity.User;
@@ -36,7 +37,7 @@ public class MessageController {
         return ResponseEntity.ok(ApiResponse.success(conversations));
     }
 
-    @Operation(summary = "Get message history", description = "Returns paginated message history with a specific user (newest first). Also marks received messages as read.")
+    @Operation(summary = "Get message history", description = "Returns paginated message history with a specific user (newest first). Also marks received messages as read. Kept for compatibility; prefer /{otherUserId}/history.")
     @GetMapping("/{otherUserId}")
     public ResponseEntity<ApiResponse<Page<MessageResponse>>> getMessageHistory(
         @AuthenticationPrincipal User user,
@@ -49,6 +50,18 @@ public class MessageController {
         return ResponseEntity.ok(ApiResponse.success(messages));
     }
 
+    @Operation(summary = "Get message history (cursor)", description = "Returns up to `limit` messages with a specific user, newest first, older than the message `before` (omit it for the newest). Pass the response's `nextBefore` to load the previous slice. No total count. Also marks received messages as read.")
+    @GetMapping("/{otherUserId}/history")
+    public ResponseEntity<ApiResponse<MessageHistoryResponse>> getMessageHistorySlice(
+        @AuthenticationPrincipal User user,
+        @Parameter(description = "ID of the other user in the conversation") @PathVariable Long otherUserId,
+        @Parameter(description = "ID of the oldest message already loaded") @RequestParam(required = false) Long before,
+        @Parameter(description = "Maximum number of messages (1-100)") @RequestParam(defaultValue = "20") Integer limit
+    ) {
+        MessageHistoryResponse history = messageService.getMessageHistory(user.getId(), otherUserId, before, limit);
+        return ResponseEntity.ok(ApiResponse.success(history));
+    }
+
     @Operation(summary = "Send message (REST fallback)", description = "REST fallback to send a message. This mirrors the primary WebSocket channel.")
     @PostMapping
     public ResponseEntity<ApiResponse<MessageResponse>> sendMessage(
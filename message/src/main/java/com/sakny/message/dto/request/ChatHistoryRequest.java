@@ -0,0 +1,27 @@
+package com.sakny.message.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * Payload of a history request over the STOMP channel (/app/chat.history).
+ * Omit {@code before} for the newest messages, then pass the previous response's
+ * {@code nextBefore} to scroll back.
+ */
+@Data
+public class ChatHistoryRequest {
+
+    @NotNull(message = "Other user ID is required")
+    @Positive(message = "Other user ID must be a positive number")
+    private Long otherUserId;
+
+    @Positive(message = "Cursor must be a message ID")
+    private Long before;
+
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = 100, message = "Limit must not exceed 100")
+    private Integer limit;
+}
@@ -0,0 +1,21 @@
+package com.sakny.message.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One slice of a conversation's history, newest first, without a total count.
+ */
+@Data
+@Builder
+public class MessageHistoryResponse {
+
+    private Long conversationId;
+    private List<MessageResponse> messages;
+
+    /** Cursor for the next (older) slice: the ID of the oldest message returned, or null at the start of the chat. */
+    private Long nextBefore;
+    private boolean hasMore;
+}
@@ -0,0 +1,14 @@
+package com.sakny.message.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Online status of a conversation partner, pushed in batches to /user/queue/presence.
+ */
+@Data
+@Builder
+public class PresenceResponse {
+    private Long    userId;
+    private boolean online;
+}
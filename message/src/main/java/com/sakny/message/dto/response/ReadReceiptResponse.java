@@ -0,0 +1,16 @@
+package com.sakny.message.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Pushed to a user's /user/queue/read-receipts when the other participant
+ * reads their messages: everything up to lastReadMessageId has been seen.
+ */
+@Data
+@Builder
+public class ReadReceiptResponse {
+    private Long   conversationId;
+    private Long   readerId;
+    private Long   lastReadMessageId;
+}
@@ -0,0 +1,66 @@
+package com.sakny.message.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-participant summary of a conversation: its latest message, the newest message the participant
+ * has read and how many messages they have not read yet. Maintained by {@code MessageService} in the
+ * same transaction as the messages themselves, so the inbox is a plain index scan and marking a
+ * conversation read updates one row.
+ */
+@Entity
+@Table(
+    name = "conversation_participant_state",
+    uniqueConstraints = @UniqueConstraint(
+        name = "uq_participant_state_conversation_user",
+        columnNames = {"conversation_id", "user_id"}
+    ),
+    indexes = @Index(name = "idx_participant_state_inbox", columnList = "user_id, last_sent_at DESC")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConversationParticipantState {
+
+    /** Length of {@link #lastMessagePreview}; longer messages are truncated. */
+    public static final int PREVIEW_LENGTH = 200;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+
+    @Column(name = "last_sent_at")
+    private LocalDateTime lastSentAt;
+
+    /** Read watermark: every message received up to this ID has been read. */
+    @Column(name = "last_read_message_id")
+    private Long lastReadMessageId;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    /** First {@value #PREVIEW_LENGTH} characters (code points, as the column counts them) of a message. */
+    public static String preview(String content) {
+        if (content.length() <= PREVIEW_LENGTH || content.codePointCount(0, content.length()) <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, content.offsetByCodePoints(0, PREVIEW_LENGTH));
+    }
+}
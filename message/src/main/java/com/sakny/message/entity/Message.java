@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 @Table(name = "messages", indexes = {
     @Index(name = "idx_messages_conversation_id", columnList = "conversation_id"),
     @Index(name = "idx_messages_sender_id",       columnList = "sender_id"),
-    @Index(name = "idx_messages_receiver_id",     columnList = "receiver_id")
+    @Index(name = "idx_messages_receiver_id",     columnList = "receiver_id"),
+    @Index(name = "idx_messages_conversation_sent_at", columnList = "conversation_id, sent_at DESC, id DESC")
 })
 @Getter
 @Setter
@@ -39,10 +40,6 @@ public class Message {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
-    @Column(name = "is_read", nullable = false)
-    @Builder.Default
-    private boolean isRead = false;
-
     @CreationTimestamp
     @Column(name = "sent_at", nullable = false, updatable = false)
     private LocalDateTime sentAt;
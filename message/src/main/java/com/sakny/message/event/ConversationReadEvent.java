@@ -0,0 +1,8 @@
+package com.sakny.message.event;
+
+/**
+ * Published when a participant's read watermark moves forward. Pushed to the other participant
+ * as a read receipt after the surrounding transaction commits.
+ */
+public record ConversationReadEvent(Long conversationId, Long readerId, Long otherUserId, Long lastReadMessageId) {
+}
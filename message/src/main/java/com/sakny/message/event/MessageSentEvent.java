@@ -0,0 +1,18 @@
+package com.sakny.message.event;
+
+import com.sakny.message.dto.response.MessageResponse;
+
+import java.time.Instant;
+
+/**
+ * Published when a message is saved. Pushed to the receiver over WebSocket only after the
+ * surrounding transaction commits, together with the receiver's new unread count. The count is
+ * null with write-behind, where it is only known, and pushed, once the message's batch is written.
+ */
+public record MessageSentEvent(MessageResponse message, Long receiverId, Long conversationId,
+                               Long unreadCount, Instant occurredAt) {
+
+    public MessageSentEvent(MessageResponse message, Long receiverId, Long conversationId, Long unreadCount) {
+        this(message, receiverId, conversationId, unreadCount, Instant.now());
+    }
+}
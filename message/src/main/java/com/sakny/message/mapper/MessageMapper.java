@@ -13,6 +13,6 @@ public interface MessageMapper {
     @Mapping(source = "sender.name",           target = "senderName")
     @Mapping(source = "receiver.id",           target = "receiverId")
     @Mapping(source = "receiver.name",         target = "receiverName")
-    @Mapping(source = "read",                  target = "isRead")
+    @Mapping(target = "isRead",                ignore = true)
     MessageResponse toResponse(Message message);
 }
@@ -0,0 +1,85 @@
+package com.sakny.message.repository;
+
+import com.sakny.message.entity.ConversationParticipantState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversationParticipantStateRepository extends JpaRepository<ConversationParticipantState, Long> {
+
+    // Shared with MessageBatchWriter, which runs it for whole batches
+    String RECORD_MESSAGE = """
+        INSERT INTO conversation_participant_state AS s
+            (conversation_id, user_id, last_message_id, last_message_preview, last_sent_at, unread_count)
+        VALUES (:conversationId, :userId, :messageId, :preview, :sentAt, :unreadIncrement)
+        ON CONFLICT (conversation_id, user_id) DO UPDATE SET
+            last_message_preview = CASE WHEN s.last_message_id IS NULL OR EXCLUDED.last_message_id > s.last_message_id
+                                        THEN EXCLUDED.last_message_preview ELSE s.last_message_preview END,
+            last_sent_at         = CASE WHEN s.last_message_id IS NULL OR EXCLUDED.last_message_id > s.last_message_id
+                                        THEN EXCLUDED.last_sent_at ELSE s.last_sent_at END,
+            last_message_id      = GREATEST(s.last_message_id, EXCLUDED.last_message_id),
+            unread_count         = s.unread_count + EXCLUDED.unread_count
+        RETURNING unread_count
+    """;
+
+    /**
+     * Records a new message in a participant's summary, creating the row on the conversation's first
+     * message, and returns the participant's unread count afterwards. The latest-message columns only
+     * move forward, so concurrent sends in either order leave the newest message in place.
+     */
+    @Query(value = RECORD_MESSAGE, nativeQuery = true)
+    int recordMessage(
+        @Param("conversationId") Long conversationId,
+        @Param("userId") Long userId,
+        @Param("messageId") Long messageId,
+        @Param("preview") String preview,
+        @Param("sentAt") LocalDateTime sentAt,
+        @Param("unreadIncrement") int unreadIncrement
+    );
+
+    /**
+     * Moves the participant's read watermark to the conversation's latest message and clears their
+     * unread count. Returns the new watermark, or empty if there was nothing unread.
+     */
+    @Query(value = """
+        UPDATE conversation_participant_state
+        SET last_read_message_id = last_message_id,
+            unread_count         = 0
+        WHERE conversation_id = :conversationId AND user_id = :userId AND unread_count > 0
+        RETURNING last_read_message_id
+    """, nativeQuery = true)
+    Optional<Long> markAllRead(
+        @Param("conversationId") Long conversationId,
+        @Param("userId") Long userId
+    );
+
+    /**
+     * Moves the participant's read watermark forward to a message and recounts what they received
+     * after it. Returns the new watermark, or empty if it was already there.
+     */
+    @Query(value = """
+        UPDATE conversation_participant_state s
+        SET last_read_message_id = :messageId,
+            unread_count         = (SELECT COUNT(*) FROM messages m
+                                    WHERE m.conversation_id = s.conversation_id
+                                      AND m.receiver_id = s.user_id
+                                      AND m.id > :messageId)
+        WHERE s.conversation_id = :conversationId AND s.user_id = :userId
+          AND (s.last_read_message_id IS NULL OR s.last_read_message_id < :messageId)
+        RETURNING s.last_read_message_id
+    """, nativeQuery = true)
+    Optional<Long> markReadUpTo(
+        @Param("conversationId") Long conversationId,
+        @Param("userId") Long userId,
+        @Param("messageId") Long messageId
+    );
+
+    /** Both participants' summaries of a conversation, for their read watermarks. */
+    List<ConversationParticipantState> findByConversationId(Long conversationId);
+}
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,25 +29,79 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
         @Param("maxId") Long maxId
     );
 
+    // Shared by the inbox queries below
+    String INBOX_SELECT = """
+        SELECT s.conversation_id                 AS "conversationId",
+               o.id                              AS "otherUserId",
+               o.name                            AS "otherUserName",
+               s.last_message_preview            AS "lastMessageContent",
+               CAST(s.last_sent_at AS TIMESTAMP) AS "lastMessageSentAt",
+               s.unread_count                    AS "unreadCount",
+               CAST(c.updated_at AS TIMESTAMP)   AS "updatedAt"
+    """;
+
+    String INBOX_FROM = """
+        FROM conversation_participant_state s
+        JOIN conversations c ON c.id = s.conversation_id
+        JOIN users o ON o.id = CASE WHEN c.participant_one_id = :userId
+                                    THEN c.participant_two_id
+                                    ELSE c.participant_one_id END
+        WHERE s.user_id = :userId
+    """;
+
     /**
-     * All conversations for a user, ordered by the latest message timestamp.
+     * Inbox of a user in one statement, read from the per-participant summaries: each conversation
+     * with the other participant, the latest message preview and the user's unread count, newest
+     * message first. Walks {@code idx_participant_state_inbox}.
      */
-    @Query("""
-        SELECT DISTINCT c FROM Conversation c
-        LEFT JOIN FETCH c.participantOne
-        LEFT JOIN FETCH c.participantTwo
-        WHERE c.participantOne.id = :userId OR c.participantTwo.id = :userId
-        ORDER BY c.updatedAt DESC
-    """)
-    List<Conversation> findAllByUserId(@Param("userId") Long userId);
+    @Query(value = INBOX_SELECT + INBOX_FROM + """
+        ORDER BY s.last_sent_at DESC, s.conversation_id DESC
+    """, nativeQuery = true)
+    List<InboxEntry> findInboxByUserId(@Param("userId") Long userId);
 
     /**
-     * Paginated variant — does not use JOIN FETCH to avoid HHH90003004 in-memory pagination warning.
+     * Paginated variant of {@link #findInboxByUserId}.
+     */
+    @Query(value = INBOX_SELECT + INBOX_FROM + """
+        ORDER BY s.last_sent_at DESC, s.conversation_id DESC
+    """, countQuery = """
+        SELECT COUNT(*) FROM conversation_participant_state s
+        WHERE s.user_id = :userId
+    """, nativeQuery = true)
+    Page<InboxEntry> findInboxByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Conversation partners of each given user, read through {@code idx_participant_state_inbox}.
      */
     @Query(value = """
-        SELECT c FROM Conversation c
-        WHERE c.participantOne.id = :userId OR c.participantTwo.id = :userId
-        ORDER BY c.updatedAt DESC
-    """)
-    Page<Conversation> findAllByUserIdPageable(@Param("userId") Long userId, Pageable pageable);
+        SELECT s.user_id AS "userId",
+               CASE WHEN c.participant_one_id = s.user_id
+                    THEN c.participant_two_id
+                    ELSE c.participant_one_id END AS "partnerId"
+        FROM conversation_participant_state s
+        JOIN conversations c ON c.id = s.conversation_id
+        WHERE s.user_id IN (:userIds)
+    """, nativeQuery = true)
+    List<Partner> findPartners(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * One row of a user's inbox.
+     */
+    interface InboxEntry {
+        Long getConversationId();
+        Long getOtherUserId();
+        String getOtherUserName();
+        String getLastMessageContent();
+        LocalDateTime getLastMessageSentAt();
+        Long getUnreadCount();
+        LocalDateTime getUpdatedAt();
+    }
+
+    /**
+     * A user and one of the people they have a conversation with.
+     */
+    interface Partner {
+        Long getUserId();
+        Long getPartnerId();
+    }
 }
@@ -0,0 +1,94 @@
+package com.sakny.message.repository;
+
+import com.sakny.message.entity.ConversationParticipantState;
+import com.sakny.message.entity.Message;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inserts messages that already carry their ID in one JDBC batch, then updates each affected
+ * participant summary once for the whole batch. Must run inside a transaction.
+ */
+@Repository
+public class MessageBatchWriter {
+
+    static final String INSERT_MESSAGE = """
+        INSERT INTO messages (id, conversation_id, sender_id, receiver_id, content, sent_at)
+        VALUES (?, ?, ?, ?, ?, ?)
+    """;
+
+    // Summaries are updated in key order so concurrent writers lock rows in the same order
+    private static final Comparator<Participant> KEY_ORDER =
+        Comparator.comparing(Participant::conversationId).thenComparing(Participant::userId);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public MessageBatchWriter(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Writes the messages and returns the receivers' unread counts afterwards, one per conversation
+     * and receiver.
+     */
+    public List<Unread> write(List<Message> messages) {
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_MESSAGE, messages, messages.size(), (ps, message) -> {
+            ps.setLong(1, message.getId());
+            ps.setLong(2, message.getConversation().getId());
+            ps.setLong(3, message.getSender().getId());
+            ps.setLong(4, message.getReceiver().getId());
+            ps.setString(5, message.getContent());
+            ps.setObject(6, message.getSentAt());
+        });
+
+        Map<Participant, Summary> summaries = new TreeMap<>(KEY_ORDER);
+        for (Message message : messages) {
+            Long conversationId = message.getConversation().getId();
+            summaries.computeIfAbsent(new Participant(conversationId, message.getSender().getId()), k -> new Summary())
+                .add(message, 0);
+            summaries.computeIfAbsent(new Participant(conversationId, message.getReceiver().getId()), k -> new Summary())
+                .add(message, 1);
+        }
+
+        List<Unread> unread = new ArrayList<>();
+        summaries.forEach((participant, summary) -> {
+            Message latest = summary.latest;
+            Integer count = jdbcTemplate.queryForObject(ConversationParticipantStateRepository.RECORD_MESSAGE,
+                new MapSqlParameterSource()
+                    .addValue("conversationId", participant.conversationId())
+                    .addValue("userId", participant.userId())
+                    .addValue("messageId", latest.getId())
+                    .addValue("preview", ConversationParticipantState.preview(latest.getContent()))
+                    .addValue("sentAt", latest.getSentAt())
+                    .addValue("unreadIncrement", summary.received),
+                Integer.class);
+            if (summary.received > 0 && count != null) {
+                unread.add(new Unread(participant.conversationId(), participant.userId(), count));
+            }
+        });
+        return unread;
+    }
+
+    public record Unread(Long conversationId, Long userId, int unreadCount) {}
+
+    private record Participant(Long conversationId, Long userId) {}
+
+    private static final class Summary {
+        private Message latest;
+        private int received;
+
+        void add(Message message, int receivedIncrement) {
+            if (latest == null || message.getId() > latest.getId()) {
+                latest = message;
+            }
+            received += receivedIncrement;
+        }
+    }
+}
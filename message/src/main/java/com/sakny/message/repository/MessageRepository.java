@@ -1,14 +1,16 @@
 package com.sakny.message.repository;
 
 import com.sakny.message.entity.Message;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -30,42 +32,46 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     );
 
     /**
-     * The most recent message in a conversation (for conversation list snippet).
+     * Newest messages of a conversation, for the first slice of keyset-paginated history.
      */
     @Query("""
         SELECT m FROM Message m
+        JOIN FETCH m.sender
+        JOIN FETCH m.receiver
         WHERE m.conversation.id = :conversationId
-        ORDER BY m.sentAt DESC
-        LIMIT 1
+        ORDER BY m.sentAt DESC, m.id DESC
     """)
-    Optional<Message> findLatestByConversationId(@Param("conversationId") Long conversationId);
+    List<Message> findLatest(@Param("conversationId") Long conversationId, Limit limit);
 
     /**
-     * Count unread messages sent to a specific user in a conversation.
+     * Messages strictly older than the cursor message (sentAt, id), newest first.
+     * The row-value comparison is a range bound on idx_messages_conversation_sent_at, so the scan
+     * starts at the cursor instead of filtering its way down from the newest message.
      */
     @Query("""
-        SELECT COUNT(m) FROM Message m
+        SELECT m FROM Message m
+        JOIN FETCH m.sender
+        JOIN FETCH m.receiver
         WHERE m.conversation.id = :conversationId
-          AND m.receiver.id = :receiverId
-          AND m.isRead = false
+          AND (m.sentAt, m.id) < (:sentAt, :id)
+        ORDER BY m.sentAt DESC, m.id DESC
     """)
-    long countUnreadByConversationIdAndReceiverId(
+    List<Message> findBefore(
         @Param("conversationId") Long conversationId,
-        @Param("receiverId") Long receiverId
+        @Param("sentAt") LocalDateTime sentAt,
+        @Param("id") Long id,
+        Limit limit
     );
 
     /**
-     * Mark all unread messages in a conversation as read for a given receiver.
+     * Timestamp of a message, only if it belongs to the given conversation (resolves a history cursor).
      */
-    @Modifying
     @Query("""
-        UPDATE Message m SET m.isRead = true
-        WHERE m.conversation.id = :conversationId
-          AND m.receiver.id = :receiverId
-          AND m.isRead = false
+        SELECT m.sentAt FROM Message m
+        WHERE m.id = :id AND m.conversation.id = :conversationId
     """)
-    int markAllAsReadInConversation(
-        @Param("conversationId") Long conversationId,
-        @Param("receiverId") Long receiverId
+    Optional<LocalDateTime> findSentAtInConversation(
+        @Param("id") Long id,
+        @Param("conversationId") Long conversationId
     );
 }
@@ -0,0 +1,267 @@
+package com.sakny.message.service;
+
+import com.sakny.message.config.MessagingProperties;
+import com.sakny.message.dto.response.ReadReceiptResponse;
+import com.sakny.message.dto.response.UnreadCountResponse;
+import com.sakny.message.event.ConversationReadEvent;
+import com.sakny.message.event.MessageSentEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pushes committed messages to their receivers over WebSocket, off the request thread.
+ *
+ * <p>Each receiver has an outbox drained by at most one worker at a time, so their frames keep the
+ * order the messages committed in. Every message is delivered, but unread-count badges are coalesced
+ * per conversation: a burst of messages that arrives while the outbox waits for a worker produces a
+ * single badge frame carrying the latest count, and read receipts likewise collapse to the newest
+ * watermark. Nothing is pushed to receivers known to be offline.
+ *
+ * <p>An outbox only exists while it holds frames or is being drained: frames are added inside the
+ * map's compute for the receiver, and a drain that leaves its outbox empty removes it the same way.
+ */
+@Service
+@Slf4j
+public class MessageDeliveryService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceService presenceService;
+    private final ThreadPoolExecutor deliveryExecutor;
+    private final Map<Long, Outbox> outboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger waitingReceivers = new AtomicInteger();
+
+    private final Timer deliveryLag;
+    private final Counter coalescedBadges;
+    private final Counter callerRuns;
+    private final Counter skippedOffline;
+
+    public MessageDeliveryService(SimpMessagingTemplate messagingTemplate,
+                                  PresenceService presenceService,
+                                  MessagingProperties messagingProperties,
+                                  MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.presenceService = presenceService;
+        AtomicInteger threads = new AtomicInteger();
+        this.deliveryExecutor = new ThreadPoolExecutor(
+                messagingProperties.getDeliveryThreads(), messagingProperties.getDeliveryThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(messagingProperties.getDeliveryQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "ws-delivery-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        Gauge.builder("sakny.messaging.delivery.pending", waitingReceivers, AtomicInteger::get)
+                .description("Receivers with frames waiting to be pushed")
+                .register(meterRegistry);
+        Gauge.builder("sakny.messaging.delivery.queue", deliveryExecutor, e -> e.getQueue().size())
+                .description("Receivers waiting for a delivery worker")
+                .register(meterRegistry);
+        this.deliveryLag = Timer.builder("sakny.messaging.delivery.lag")
+                .description("Time from a message being saved to its push to the receiver")
+                .register(meterRegistry);
+        this.coalescedBadges = Counter.builder("sakny.messaging.delivery.coalesced")
+                .description("Unread-count and read-receipt frames skipped because a newer one replaced them")
+                .register(meterRegistry);
+        this.callerRuns = Counter.builder("sakny.messaging.delivery.caller.runs")
+                .description("Deliveries made on the committing thread because the delivery queue was full")
+                .register(meterRegistry);
+        this.skippedOffline = Counter.builder("sakny.messaging.delivery.offline")
+                .description("Messages not pushed because the receiver had no WebSocket session")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        deliveryExecutor.shutdown();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMessageSent(MessageSentEvent event) {
+        schedule(enqueue(event.receiverId(), outbox -> outbox.add(event)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onConversationRead(ConversationReadEvent event) {
+        schedule(enqueue(event.otherUserId(), outbox -> outbox.add(event)));
+    }
+
+    /**
+     * Pushes a receiver's new unread count for a conversation, for counts that change outside a
+     * message send (write-behind batches).
+     */
+    public void unreadCountChanged(Long receiverId, Long conversationId, long unreadCount) {
+        schedule(enqueue(receiverId, outbox -> outbox.badge(conversationId, unreadCount)));
+    }
+
+    // Adds under the map's lock for the receiver, so a concurrent drain cannot remove the outbox meanwhile
+    private Outbox enqueue(Long receiverId, Consumer<Outbox> frame) {
+        return outboxes.compute(receiverId, (id, outbox) -> {
+            Outbox target = outbox != null ? outbox : new Outbox(id);
+            frame.accept(target);
+            return target;
+        });
+    }
+
+    private void schedule(Outbox outbox) {
+        if (!outbox.scheduled.compareAndSet(false, true)) {
+            return; // a drain is queued or running and will pick this up
+        }
+        waitingReceivers.incrementAndGet();
+        try {
+            deliveryExecutor.execute(() -> drain(outbox));
+        } catch (RejectedExecutionException e) {
+            // Backpressure: the committing thread delivers instead of dropping frames
+            callerRuns.increment();
+            drain(outbox);
+        }
+    }
+
+    private void drain(Outbox outbox) {
+        try {
+            do {
+                outbox.flush();
+                outbox.scheduled.set(false);
+                // Re-claim if something arrived between the flush and releasing the flag
+            } while (!outbox.isEmpty() && outbox.scheduled.compareAndSet(false, true));
+            outboxes.computeIfPresent(outbox.receiverId,
+                    (id, current) -> current == outbox && !current.scheduled.get() && current.isEmpty() ? null : current);
+        } finally {
+            waitingReceivers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Frames waiting for one receiver: every message, and the latest unread count and read receipt
+     * per conversation.
+     */
+    private final class Outbox {
+
+        private final Long receiverId;
+        private final String user;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Queue<MessageSentEvent> messages = new ConcurrentLinkedQueue<>();
+        private final Map<Long, Long> unreadCounts = new LinkedHashMap<>();
+        private final Map<Long, ConversationReadEvent> receipts = new LinkedHashMap<>();
+
+        Outbox(Long receiverId) {
+            this.receiverId = receiverId;
+            this.user = String.valueOf(receiverId);
+        }
+
+        void add(MessageSentEvent event) {
+            messages.add(event);
+            if (event.unreadCount() != null) {
+                badge(event.conversationId(), event.unreadCount());
+            }
+        }
+
+        void badge(Long conversationId, long unreadCount) {
+            synchronized (unreadCounts) {
+                if (unreadCounts.put(conversationId, unreadCount) != null) {
+                    coalescedBadges.increment();
+                }
+            }
+        }
+
+        void add(ConversationReadEvent event) {
+            synchronized (unreadCounts) {
+                ConversationReadEvent previous = receipts.get(event.conversationId());
+                if (previous == null || previous.lastReadMessageId() < event.lastReadMessageId()) {
+                    receipts.put(event.conversationId(), event);
+                }
+                if (previous != null) {
+                    coalescedBadges.increment();
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            if (!messages.isEmpty()) {
+                return false;
+            }
+            synchronized (unreadCounts) {
+                return unreadCounts.isEmpty() && receipts.isEmpty();
+            }
+        }
+
+        void flush() {
+            if (presenceService.isOffline(receiverId)) {
+                // Nobody to push to; the inbox and history endpoints show it all on reconnect
+                discard();
+                return;
+            }
+
+            MessageSentEvent event;
+            while ((event = messages.poll()) != null) {
+                send("/queue/messages", event.message());
+                deliveryLag.record(Duration.between(event.occurredAt(), Instant.now()));
+            }
+
+            Map<Long, Long> badges;
+            List<ConversationReadEvent> readUpTo;
+            synchronized (unreadCounts) {
+                badges = new LinkedHashMap<>(unreadCounts);
+                unreadCounts.clear();
+                readUpTo = List.copyOf(receipts.values());
+                receipts.clear();
+            }
+            // Lightweight unread-count badge update so the UI can refresh the
+            // conversation list indicator without a REST call
+            badges.forEach((conversationId, unread) -> send("/queue/unread-count",
+                    UnreadCountResponse.builder()
+                            .conversationId(conversationId)
+                            .unreadCount(unread)
+                            .build()));
+            readUpTo.forEach(receipt -> send("/queue/read-receipts",
+                    ReadReceiptResponse.builder()
+                            .conversationId(receipt.conversationId())
+                            .readerId(receipt.readerId())
+                            .lastReadMessageId(receipt.lastReadMessageId())
+                            .build()));
+        }
+
+        private void discard() {
+            while (messages.poll() != null) {
+                skippedOffline.increment();
+            }
+            synchronized (unreadCounts) {
+                unreadCounts.clear();
+                receipts.clear();
+            }
+        }
+
+        private void send(String destination, Object payload) {
+            try {
+                messagingTemplate.convertAndSendToUser(user, destination, payload);
+            } catch (Exception e) {
+                log.warn("Failed to push {} to user {}: {}", destination, user, e.getMessage());
+            }
+        }
+    }
+}
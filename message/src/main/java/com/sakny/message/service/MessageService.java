@@ -2,12 +2,17 @@ package com.sakny.message.service;
 
 import com.sakny.message.dto.request.SendMessageRequest;
 import com.sakny.message.dto.response.ConversationResponse;
+import com.sakny.message.dto.response.MessageHistoryResponse;
 import com.sakny.message.dto.response.MessageResponse;
-import com.sakny.message.dto.response.UnreadCountResponse;
 import com.sakny.message.entity.Conversation;
+import com.sakny.message.entity.ConversationParticipantState;
 import com.sakny.message.entity.Message;
+import com.sakny.message.event.ConversationReadEvent;
+import com.sakny.message.event.MessageSentEvent;
 import com.sakny.message.mapper.MessageMapper;
+import com.sakny.message.repository.ConversationParticipantStateRepository;
 import com.sakny.message.repository.ConversationRepository;
+import com.sakny.message.repository.ConversationRepository.InboxEntry;
 import com.sakny.message.repository.MessageRepository;
 import com.sakny.user.entity.User;
 import com.sakny.user.repository.UserRepository;
@@ -15,14 +20,20 @@ import com.sakny.user.service.SafetyService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -32,10 +43,16 @@ public class MessageService {
 
     private final ConversationRepository conversationRepository;
     private final MessageRepository      messageRepository;
+    private final ConversationParticipantStateRepository participantStateRepository;
     private final UserRepository         userRepository;
     private final MessageMapper          messageMapper;
-    private final SimpMessagingTemplate  messagingTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     private final SafetyService          safetyService;
+    private final PresenceService        presenceService;
+    private final MessageWriteBehindBuffer writeBehindBuffer;
+
+    private static final int DEFAULT_HISTORY_LIMIT = 20;
+    private static final int MAX_HISTORY_LIMIT     = 100;
 
     // ------------------------------------------------------------------ //
     //  Conversation list
@@ -46,18 +63,23 @@ public class MessageService {
      * last-message snippet and unread count.
      */
     public List<ConversationResponse> getConversations(Long currentUserId) {
-        return conversationRepository.findAllByUserId(currentUserId)
+        List<ConversationResponse> conversations = conversationRepository.findInboxByUserId(currentUserId)
             .stream()
-            .map(conv -> buildConversationResponse(conv, currentUserId))
+            .map(this::toConversationResponse)
             .toList();
+        return withPresence(conversations);
     }
 
     /**
      * Paginated variant — prefer this for large conversation lists.
+     * Ordering is fixed (latest message first); any sort on the pageable is ignored.
      */
     public Page<ConversationResponse> getConversations(Long currentUserId, Pageable pageable) {
-        return conversationRepository.findAllByUserIdPageable(currentUserId, pageable)
-            .map(conv -> buildConversationResponse(conv, currentUserId));
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Page<ConversationResponse> page = conversationRepository.findInboxByUserId(currentUserId, unsorted)
+            .map(this::toConversationResponse);
+        withPresence(page.getContent());
+        return page;
     }
 
     // ------------------------------------------------------------------ //
@@ -67,20 +89,51 @@ public class MessageService {
     /**
      * Returns paginated message history between the current user and another user.
      * Also marks all unread messages sent to the current user as read.
+     * Kept for compatibility; OFFSET paging slows down deep into long chats, prefer the keyset variant.
      */
     @Transactional
     public Page<MessageResponse> getMessageHistory(Long currentUserId, Long otherUserId, Pageable pageable) {
         Conversation conversation = findOrThrow(currentUserId, otherUserId);
-
-        // Side-effect: mark messages as read when the receiver fetches history
-        int marked = messageRepository.markAllAsReadInConversation(conversation.getId(), currentUserId);
-        if (marked > 0) {
-            log.debug("Marked {} messages as read in conversation {} for user {}", marked, conversation.getId(), currentUserId);
-        }
+        markConversationRead(conversation, currentUserId);
 
         return messageRepository
             .findByConversationId(conversation.getId(), pageable)
-            .map(messageMapper::toResponse);
+            .map(responseMapper(conversation.getId()));
+    }
+
+    /**
+     * Keyset-paginated message history between the current user and another user, newest first.
+     * {@code before} is the ID of the oldest message already shown (null for the newest slice).
+     * Marks unread messages sent to the current user as read, like the paginated variant.
+     */
+    @Transactional
+    public MessageHistoryResponse getMessageHistory(Long currentUserId, Long otherUserId, Long before, Integer limit) {
+        Conversation conversation = findOrThrow(currentUserId, otherUserId);
+        markConversationRead(conversation, currentUserId);
+
+        int size = limit == null ? DEFAULT_HISTORY_LIMIT : Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+        // One extra row tells whether an older slice exists, instead of a count
+        Limit fetch = Limit.of(size + 1);
+
+        List<Message> messages;
+        if (before == null) {
+            messages = messageRepository.findLatest(conversation.getId(), fetch);
+        } else {
+            writeBehindBuffer.awaitPersisted(before);
+            LocalDateTime cursorSentAt = messageRepository.findSentAtInConversation(before, conversation.getId())
+                .orElseThrow(() -> new IllegalArgumentException("Unknown history cursor: " + before));
+            messages = messageRepository.findBefore(conversation.getId(), cursorSentAt, before, fetch);
+        }
+
+        boolean hasMore = messages.size() > size;
+        List<Message> slice = hasMore ? messages.subList(0, size) : messages;
+
+        return MessageHistoryResponse.builder()
+            .conversationId(conversation.getId())
+            .messages(slice.stream().map(responseMapper(conversation.getId())).toList())
+            .nextBefore(hasMore ? slice.get(slice.size() - 1).getId() : null)
+            .hasMore(hasMore)
+            .build();
     }
 
     // ------------------------------------------------------------------ //
@@ -94,15 +147,18 @@ public class MessageService {
         }
 
         // Check if either user has blocked the other
-        if (safetyService.isBlocked(senderId, request.getReceiverId())
-                || safetyService.isBlocked(request.getReceiverId(), senderId)) {
+        if (safetyService.isBlockedEitherWay(senderId, request.getReceiverId())) {
             throw new IllegalStateException("Cannot send message to this user");
         }
 
         User sender   = getUserOrThrow(senderId);
         User receiver = getUserOrThrow(request.getReceiverId());
 
-        Conversation conversation = findOrCreateConversation(sender, receiver);
+        Conversation conversation = findConversation(sender, receiver);
+        boolean newConversation = conversation == null;
+        if (newConversation) {
+            conversation = createConversation(sender, receiver);
+        }
 
         Message message = Message.builder()
             .conversation(conversation)
@@ -111,29 +167,35 @@ public class MessageService {
             .content(request.getContent())
             .build();
 
+        if (writeBehindBuffer.isEnabled()) {
+            message.setId(writeBehindBuffer.nextId());
+            message.setSentAt(LocalDateTime.now());
+            Long unread = null;
+            if (newConversation) {
+                // The writer's own transaction could not see the conversation this one creates
+                unread = writeBehindBuffer.writeNow(message);
+            } else {
+                writeBehindBuffer.submit(message);
+            }
+            MessageResponse response = messageMapper.toResponse(message);
+            eventPublisher.publishEvent(
+                new MessageSentEvent(response, receiver.getId(), conversation.getId(), unread));
+            return response;
+        }
+
         message = messageRepository.save(message);
         MessageResponse response = messageMapper.toResponse(message);
 
-        // 1. Push the full message payload to the receiver's personal queue
-        messagingTemplate.convertAndSendToUser(
-            String.valueOf(receiver.getId()),
-            "/queue/messages",
-            response
-        );
-
-        // 2. Push a lightweight unread-count badge update so the UI can
-        //    refresh the conversation list indicator without a REST call
-        long unread = messageRepository
-            .countUnreadByConversationIdAndReceiverId(conversation.getId(), receiver.getId());
-
-        messagingTemplate.convertAndSendToUser(
-            String.valueOf(receiver.getId()),
-            "/queue/unread-count",
-            UnreadCountResponse.builder()
-                .conversationId(conversation.getId())
-                .unreadCount(unread)
-                .build()
-        );
+        // Keep both participants' inbox summaries current; the receiver's returns the new badge count
+        String preview = ConversationParticipantState.preview(message.getContent());
+        participantStateRepository.recordMessage(
+            conversation.getId(), sender.getId(), message.getId(), preview, message.getSentAt(), 0);
+        long unread = participantStateRepository.recordMessage(
+            conversation.getId(), receiver.getId(), message.getId(), preview, message.getSentAt(), 1);
+
+        // Pushed to the receiver (message + unread badge) once the transaction commits
+        eventPublisher.publishEvent(
+            new MessageSentEvent(response, receiver.getId(), conversation.getId(), unread));
 
         log.debug("Message {} sent from user {} to user {} in conversation {}",
             message.getId(), senderId, receiver.getId(), conversation.getId());
@@ -145,8 +207,14 @@ public class MessageService {
     //  Mark single message as read
     // ------------------------------------------------------------------ //
 
+    /**
+     * Marks a received message read. Read state is a watermark, so every earlier message the
+     * current user received in the conversation counts as read too.
+     */
     @Transactional
     public MessageResponse markAsRead(Long currentUserId, Long messageId) {
+        // A buffered write-behind message is pushed before it is inserted
+        writeBehindBuffer.awaitPersisted(messageId);
         Message message = messageRepository.findById(messageId)
             .orElseThrow(() -> new EntityNotFoundException("Message not found: " + messageId));
 
@@ -154,34 +222,36 @@ public class MessageService {
             throw new AccessDeniedException("You can only mark your own received messages as read");
         }
 
-        if (!message.isRead()) {
-            message.setRead(true);
-            message = messageRepository.save(message);
-        }
+        Long conversationId = message.getConversation().getId();
+        participantStateRepository.markReadUpTo(conversationId, currentUserId, messageId)
+            .ifPresent(lastRead -> eventPublisher.publishEvent(new ConversationReadEvent(
+                conversationId, currentUserId, message.getSender().getId(), lastRead)));
 
-        return messageMapper.toResponse(message);
+        MessageResponse response = messageMapper.toResponse(message);
+        response.setRead(true);
+        return response;
     }
 
     // ------------------------------------------------------------------ //
     //  Helpers
     // ------------------------------------------------------------------ //
 
-    private Conversation findOrCreateConversation(User userA, User userB) {
+    private Conversation findConversation(User userA, User userB) {
         Long minId = Math.min(userA.getId(), userB.getId());
         Long maxId = Math.max(userA.getId(), userB.getId());
 
-        return conversationRepository.findByParticipants(minId, maxId)
-            .orElseGet(() -> {
-                User participantOne = userA.getId().equals(minId) ? userA : userB;
-                User participantTwo = userA.getId().equals(maxId) ? userA : userB;
+        return conversationRepository.findByParticipants(minId, maxId).orElse(null);
+    }
+
+    private Conversation createConversation(User userA, User userB) {
+        boolean aFirst = userA.getId() < userB.getId();
 
-                Conversation conv = Conversation.builder()
-                    .participantOne(participantOne)
-                    .participantTwo(participantTwo)
-                    .build();
+        Conversation conv = Conversation.builder()
+            .participantOne(aFirst ? userA : userB)
+            .participantTwo(aFirst ? userB : userA)
+            .build();
 
-                return conversationRepository.save(conv);
-            });
+        return conversationRepository.save(conv);
     }
 
     private Conversation findOrThrow(Long userAId, Long userBId) {
@@ -193,26 +263,56 @@ public class MessageService {
                 "No conversation found between users " + userAId + " and " + userBId));
     }
 
+    // Side-effect of fetching history: the receiver has now seen every message
+    private void markConversationRead(Conversation conversation, Long currentUserId) {
+        participantStateRepository.markAllRead(conversation.getId(), currentUserId).ifPresent(lastRead -> {
+            Long otherUserId = conversation.getParticipantOne().getId().equals(currentUserId)
+                ? conversation.getParticipantTwo().getId()
+                : conversation.getParticipantOne().getId();
+            eventPublisher.publishEvent(
+                new ConversationReadEvent(conversation.getId(), currentUserId, otherUserId, lastRead));
+            log.debug("User {} read conversation {} up to message {}", currentUserId, conversation.getId(), lastRead);
+        });
+    }
+
+    /** Maps messages of one conversation, read state taken from each receiver's watermark. */
+    private Function<Message, MessageResponse> responseMapper(Long conversationId) {
+        Map<Long, Long> lastRead = new HashMap<>();
+        for (ConversationParticipantState state : participantStateRepository.findByConversationId(conversationId)) {
+            if (state.getLastReadMessageId() != null) {
+                lastRead.put(state.getUserId(), state.getLastReadMessageId());
+            }
+        }
+        return message -> {
+            MessageResponse response = messageMapper.toResponse(message);
+            Long watermark = lastRead.get(message.getReceiver().getId());
+            response.setRead(watermark != null && message.getId() <= watermark);
+            return response;
+        };
+    }
+
     private User getUserOrThrow(Long userId) {
         return userRepository.findById(userId)
             .orElseThrow(() -> new EntityNotFoundException("User not found: " + userId));
     }
 
-    private ConversationResponse buildConversationResponse(Conversation conv, Long currentUserId) {
-        boolean currentIsOne = conv.getParticipantOne().getId().equals(currentUserId);
-        User other = currentIsOne ? conv.getParticipantTwo() : conv.getParticipantOne();
-
-        var lastMsgOpt = messageRepository.findLatestByConversationId(conv.getId());
-        long unread    = messageRepository.countUnreadByConversationIdAndReceiverId(conv.getId(), currentUserId);
+    /** Fills in the other participants' online status with one bulk lookup. */
+    private List<ConversationResponse> withPresence(List<ConversationResponse> conversations) {
+        Map<Long, Boolean> online = presenceService.onlineStatus(
+            conversations.stream().map(ConversationResponse::getOtherUserId).toList());
+        conversations.forEach(c -> c.setOtherUserOnline(online.get(c.getOtherUserId())));
+        return conversations;
+    }
 
+    private ConversationResponse toConversationResponse(InboxEntry entry) {
         return ConversationResponse.builder()
-            .conversationId(conv.getId())
-            .otherUserId(other.getId())
-            .otherUserName(other.getName())
-            .lastMessageContent(lastMsgOpt.map(Message::getContent).orElse(null))
-            .lastMessageSentAt(lastMsgOpt.map(Message::getSentAt).orElse(null))
-            .unreadCount(unread)
-            .updatedAt(conv.getUpdatedAt())
+            .conversationId(entry.getConversationId())
+            .otherUserId(entry.getOtherUserId())
+            .otherUserName(entry.getOtherUserName())
+            .lastMessageContent(entry.getLastMessageContent())
+            .lastMessageSentAt(entry.getLastMessageSentAt())
+            .unreadCount(entry.getUnreadCount())
+            .updatedAt(entry.getUpdatedAt())
             .build();
     }
 }
@@ -0,0 +1,339 @@
+package com.sakny.message.service;
+
+import com.sakny.message.config.MessagingProperties;
+import com.sakny.message.entity.Message;
+import com.sakny.message.entity.MessageIdGenerator;
+import com.sakny.message.repository.MessageBatchWriter;
+import com.sakny.message.repository.MessageBatchWriter.Unread;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind persistence of sent messages ({@code sakny.messaging.write-behind}).
+ *
+ * <p>Messages arrive with their ID (from {@link #nextId()}) and timestamp already assigned, in a
+ * conversation that is already committed, and are queued around the sending request's commit (see
+ * {@link #submit(Message)}). A single writer thread takes up to {@code batchSize} of them, waiting
+ * at most {@code flushInterval} for more after the first, and writes them with
+ * {@link MessageBatchWriter} in one transaction. Unread badges are pushed once the batch commits. A
+ * batch that fails is retried message by message, so one bad row does not take the others down
+ * with it.
+ *
+ * <p>IDs come from a {@link MessageIdGenerator}, so every node needs its own
+ * {@code sakny.messaging.node-id}; startup fails without one. All nodes must run the same mode.
+ *
+ * <p>With {@code buffered} durability a message is pushed before its row exists. Lookups by ID that
+ * can race the insert, like marking the pushed message read, wait for it with
+ * {@link #awaitPersisted(Long)}.
+ */
+@Service
+@Slf4j
+public class MessageWriteBehindBuffer {
+
+    private final MessagingProperties.WriteBehind settings;
+    private final MessageBatchWriter writer;
+    private final MessageDeliveryService deliveryService;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageIdGenerator ids;
+
+    private final BlockingQueue<Pending> queue;
+    // Queued or being written, by message ID
+    private final Map<Long, CompletableFuture<Void>> unwritten = new ConcurrentHashMap<>();
+    private final Thread flusher;
+    private volatile boolean running;
+
+    private final Timer flushes;
+    private final DistributionSummary batchSizes;
+    private final Counter callerWrites;
+    private final Counter failures;
+
+    public MessageWriteBehindBuffer(MessagingProperties messagingProperties,
+                                    MessageBatchWriter writer,
+                                    MessageDeliveryService deliveryService,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.settings = messagingProperties.getWriteBehind();
+        this.writer = writer;
+        this.deliveryService = deliveryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.flushes = Timer.builder("sakny.messaging.write-behind.flush")
+                .description("Time to write one batch of messages")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("sakny.messaging.write-behind.batch")
+                .description("Messages written per batch")
+                .register(meterRegistry);
+        this.callerWrites = Counter.builder("sakny.messaging.write-behind.caller.writes")
+                .description("Messages written by their request because the queue was full")
+                .register(meterRegistry);
+        this.failures = Counter.builder("sakny.messaging.write-behind.failures")
+                .description("Messages that could not be written")
+                .register(meterRegistry);
+
+        if (!settings.isEnabled()) {
+            this.ids = null;
+            this.queue = null;
+            this.flusher = null;
+            return;
+        }
+        if (messagingProperties.getNodeId() == null) {
+            throw new IllegalStateException(
+                    "sakny.messaging.node-id must be set, distinct per node, when write-behind is enabled");
+        }
+        this.ids = new MessageIdGenerator(messagingProperties.getNodeId());
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        Gauge.builder("sakny.messaging.write-behind.queue", queue, BlockingQueue::size)
+                .description("Messages waiting to be written")
+                .register(meterRegistry);
+        this.running = true;
+        this.flusher = new Thread(this::run, "message-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        log.info("Message write-behind enabled: node={}, durability={}, batchSize={}, flushInterval={}",
+                messagingProperties.getNodeId(), settings.getDurability(), settings.getBatchSize(), settings.getFlushInterval());
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /** The ID for a message about to be submitted. Only available when write-behind is enabled. */
+    public long nextId() {
+        if (ids == null) {
+            throw new IllegalStateException("Message write-behind is disabled");
+        }
+        return ids.nextId();
+    }
+
+    /**
+     * Waits, up to {@code flushTimeout}, until a queued message has been written, or returns at once
+     * if the message is not queued on this node. Whether the write succeeded is left to the caller's
+     * own lookup.
+     */
+    public void awaitPersisted(Long messageId) {
+        CompletableFuture<Void> persisted = unwritten.get(messageId);
+        if (persisted == null) {
+            return;
+        }
+        try {
+            persisted.get(settings.getFlushTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Reported by the lookup that follows
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Persists a message written by the current transaction. Its conversation must already be
+     * committed, since the message is inserted by another transaction.
+     *
+     * <p>With {@code flushed} durability the message is queued just before the current transaction
+     * commits, and the commit waits until the message's batch has committed. If it cannot be
+     * written, the transaction rolls back and the caller gets the error before anything was
+     * acknowledged or delivered; after a timeout the message is taken back off the queue first, so
+     * an error always means it was not saved. With {@code buffered} durability it is queued once the
+     * transaction commits and never fails the caller.
+     */
+    public void submit(Message message) {
+        boolean flushed = settings.getDurability() == MessagingProperties.WriteBehind.Durability.FLUSHED;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Pending pending = enqueue(message);
+            if (flushed) {
+                await(pending);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (flushed) {
+                    await(enqueue(message));
+                }
+            }
+
+            @Override
+            public void afterCommit() {
+                if (!flushed) {
+                    enqueue(message);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes a message in the current transaction instead of queueing it, for a message whose
+     * conversation that transaction creates. Returns the receiver's unread count afterwards.
+     */
+    public Long writeNow(Message message) {
+        return writer.write(List.of(message)).stream()
+                .filter(u -> u.userId().equals(message.getReceiver().getId()))
+                .map(u -> (long) u.unreadCount())
+                .findFirst()
+                .orElse(null);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(settings.getFlushTimeout().toMillis());
+
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (rest.isEmpty()) {
+            return;
+        }
+        if (settings.isFlushOnShutdown()) {
+            flush(rest);
+        } else {
+            log.warn("Discarding {} unwritten messages on shutdown", rest.size());
+            rest.forEach(p -> p.persisted().completeExceptionally(new IllegalStateException("Shutting down")));
+        }
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Request side
+    // ------------------------------------------------------------------ //
+
+    private Pending enqueue(Message message) {
+        Pending pending = new Pending(message, new CompletableFuture<>());
+        unwritten.put(message.getId(), pending.persisted());
+        pending.persisted().whenComplete((ignored, e) -> unwritten.remove(message.getId()));
+        boolean queued = false;
+        try {
+            queued = running && queue.offer(pending, settings.getEnqueueTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queued) {
+            // Backpressure: the writer is behind, so this request writes its own message
+            callerWrites.increment();
+            flush(List.of(pending));
+        }
+        return pending;
+    }
+
+    /**
+     * Waits for a queued message to be written and fails if it was not. A message still queued when
+     * {@code flushTimeout} passes is withdrawn, so the failure is certain; one the writer already
+     * holds is waited for, since its batch is in flight and either commits or fails.
+     */
+    private void await(Pending pending) {
+        Long id = pending.message().getId();
+        try {
+            pending.persisted().get(settings.getFlushTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Message " + id + " could not be saved", e.getCause());
+        } catch (TimeoutException e) {
+            // Withdrawn below, unless the writer has it
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (queue.remove(pending)) {
+            pending.persisted().completeExceptionally(new IllegalStateException("Withdrawn"));
+            throw new IllegalStateException("Timed out saving message " + id);
+        }
+        try {
+            pending.persisted().join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Message " + id + " could not be saved", e.getCause());
+        }
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Writer side
+    // ------------------------------------------------------------------ //
+
+    private void run() {
+        long lingerNanos = settings.getFlushInterval().toNanos();
+        List<Pending> batch = new ArrayList<>(settings.getBatchSize());
+        while (running || (settings.isFlushOnShutdown() && !queue.isEmpty())) {
+            try {
+                Pending first = queue.poll(lingerNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < settings.getBatchSize()) {
+                    queue.drainTo(batch, settings.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= settings.getBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Not used for shutdown; write whatever was collected
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(settings.getBatchSize());
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<Message> messages = batch.stream().map(Pending::message).toList();
+        List<Unread> unread;
+        try {
+            unread = flushes.recordCallable(() -> transactionTemplate.execute(status -> writer.write(messages)));
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                log.warn("Writing a batch of {} messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+                batch.forEach(pending -> flush(List.of(pending)));
+                return;
+            }
+            failures.increment();
+            log.error("Could not save message {}: {}", messages.get(0).getId(), e.getMessage());
+            batch.get(0).persisted().completeExceptionally(e);
+            return;
+        }
+
+        batchSizes.record(batch.size());
+        batch.forEach(pending -> pending.persisted().complete(null));
+        if (unread != null) {
+            unread.forEach(u -> deliveryService.unreadCountChanged(u.userId(), u.conversationId(), u.unreadCount()));
+        }
+    }
+
+    private record Pending(Message message, CompletableFuture<Void> persisted) {}
+}
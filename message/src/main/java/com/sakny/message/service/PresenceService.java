@@ -0,0 +1,279 @@
+package com.sakny.message.service;
+
+import com.sakny.message.config.MessagingProperties;
+import com.sakny.message.config.WebSocketBrokerProperties;
+import com.sakny.message.dto.response.PresenceResponse;
+import com.sakny.message.repository.ConversationRepository;
+import com.sakny.message.repository.ConversationRepository.Partner;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks which users have an open WebSocket session.
+ *
+ * <p>Each node keeps the session ids of its own users in memory, which is authoritative with the
+ * single-node {@code simple} broker. With a multi-node broker, every user connected here is also
+ * mirrored to the Redis hash {@code presence:{userId}} as {@code nodeId → expiry}; the node
+ * heartbeats its entries, so a crashed node's users go offline once their entries expire.
+ *
+ * <p>Presence changes are collected and announced to conversation partners every
+ * {@code sakny.messaging.presence-broadcast-interval}: each online partner receives at most one
+ * frame per interval, and a user who reconnects within the interval is not announced at all.
+ *
+ * <p>While Redis is unreachable, users without a session here are unknown rather than offline:
+ * messages and presence frames are still pushed to them, shown statuses read offline, and changes
+ * of unknown users are announced once Redis answers again.
+ */
+@Service
+@Slf4j
+public class PresenceService {
+
+    private static final String KEY_PREFIX = "presence:";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final boolean clustered;
+    private final long ttlMillis;
+
+    private final ConversationRepository conversationRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Map<Long, Set<String>> localSessions = new ConcurrentHashMap<>();
+    // Users whose presence changed since the last broadcast, with their status before the first change
+    private final Map<Long, Boolean> changed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public PresenceService(ConversationRepository conversationRepository,
+                           SimpMessagingTemplate messagingTemplate,
+                           StringRedisTemplate redisTemplate,
+                           MessagingProperties messagingProperties,
+                           WebSocketBrokerProperties brokerProperties,
+                           MeterRegistry meterRegistry) {
+        this.conversationRepository = conversationRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.redisTemplate = redisTemplate;
+        this.clustered = brokerProperties.getMode() != WebSocketBrokerProperties.Mode.SIMPLE;
+        this.ttlMillis = messagingProperties.getPresenceTtl().toMillis();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "presence");
+            t.setDaemon(true);
+            return t;
+        });
+        long broadcastMillis = messagingProperties.getPresenceBroadcastInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::broadcastChanges, broadcastMillis, broadcastMillis, TimeUnit.MILLISECONDS);
+        if (clustered) {
+            long heartbeatMillis = Math.max(1, ttlMillis / 3);
+            scheduler.scheduleAtFixedRate(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+
+        Gauge.builder("sakny.presence.online", localSessions, Map::size)
+                .description("Users with a WebSocket session on this node")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        if (clustered && !localSessions.isEmpty()) {
+            Set<Long> userIds = Set.copyOf(localSessions.keySet());
+            redis(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection c = (StringRedisConnection) connection;
+                userIds.forEach(userId -> c.hDel(key(userId), nodeId));
+                return null;
+            }));
+        }
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Session lifecycle
+    // ------------------------------------------------------------------ //
+
+    public void connected(Long userId, String sessionId) {
+        boolean[] first = {false};
+        localSessions.compute(userId, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+                first[0] = true;
+            }
+            sessions.add(sessionId);
+            return sessions;
+        });
+        if (first[0]) {
+            if (clustered) {
+                redis(() -> touch(List.of(userId)));
+            }
+            changed.putIfAbsent(userId, false);
+        }
+    }
+
+    public void disconnected(Long userId, String sessionId) {
+        boolean[] last = {false};
+        localSessions.computeIfPresent(userId, (id, sessions) -> {
+            // Disconnect events can repeat for the same session; only the removal counts
+            if (sessions.remove(sessionId) && sessions.isEmpty()) {
+                last[0] = true;
+                return null;
+            }
+            return sessions.isEmpty() ? null : sessions;
+        });
+        if (last[0]) {
+            if (clustered) {
+                redis(() -> redisTemplate.opsForHash().delete(key(userId), nodeId));
+            }
+            changed.putIfAbsent(userId, true);
+        }
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Lookups
+    // ------------------------------------------------------------------ //
+
+    /**
+     * Whether the user is known to have no session on any node. Presence only saves work, so when
+     * Redis cannot be asked the answer is no, and frames are pushed anyway.
+     */
+    public boolean isOffline(Long userId) {
+        return Boolean.FALSE.equals(lookup(List.of(userId)).get(userId));
+    }
+
+    /**
+     * Online status of each given user for display; users whose status is unknown because Redis is
+     * unavailable are shown offline.
+     */
+    public Map<Long, Boolean> onlineStatus(Collection<Long> userIds) {
+        Map<Long, Boolean> status = lookup(userIds);
+        status.replaceAll((userId, online) -> Boolean.TRUE.equals(online));
+        return status;
+    }
+
+    /**
+     * Sessions on this node first, then one pipelined Redis round trip for the rest. A user is
+     * mapped to null if only Redis could tell and it is unavailable.
+     */
+    private Map<Long, Boolean> lookup(Collection<Long> userIds) {
+        Map<Long, Boolean> status = new HashMap<>(userIds.size() * 2);
+        List<Long> remote = new ArrayList<>();
+        for (Long userId : userIds) {
+            boolean local = localSessions.containsKey(userId);
+            if (!local && clustered) {
+                remote.add(userId);
+                status.put(userId, null);
+            } else {
+                status.put(userId, local);
+            }
+        }
+        if (!remote.isEmpty()) {
+            redis(() -> {
+                List<Object> entries = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection c = (StringRedisConnection) connection;
+                    remote.forEach(userId -> c.hVals(key(userId)));
+                    return null;
+                });
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < remote.size(); i++) {
+                    status.put(remote.get(i), entries.get(i) instanceof Collection<?> expiries && anyAfter(expiries, now));
+                }
+            });
+        }
+        return status;
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Background work
+    // ------------------------------------------------------------------ //
+
+    private void heartbeat() {
+        if (!localSessions.isEmpty()) {
+            redis(() -> touch(List.copyOf(localSessions.keySet())));
+        }
+    }
+
+    private void touch(Collection<Long> userIds) {
+        String expiry = String.valueOf(System.currentTimeMillis() + ttlMillis);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection c = (StringRedisConnection) connection;
+            for (Long userId : userIds) {
+                c.hSet(key(userId), nodeId, expiry);
+                c.pExpire(key(userId), ttlMillis);
+            }
+            return null;
+        });
+    }
+
+    private void broadcastChanges() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, Boolean> before = new HashMap<>();
+            for (Long userId : List.copyOf(changed.keySet())) {
+                Boolean wasOnline = changed.remove(userId);
+                if (wasOnline != null) before.put(userId, wasOnline);
+            }
+
+            // Re-check: a user may have flapped back, or still be connected to another node
+            Map<Long, Boolean> now = lookup(before.keySet());
+            now.entrySet().removeIf(e -> {
+                if (e.getValue() == null) {
+                    // Unknown while Redis is down; announce once it can be told
+                    changed.putIfAbsent(e.getKey(), before.get(e.getKey()));
+                    return true;
+                }
+                return e.getValue().equals(before.get(e.getKey()));
+            });
+            if (now.isEmpty()) {
+                return;
+            }
+
+            Map<Long, List<PresenceResponse>> framesByPartner = new HashMap<>();
+            for (Partner partner : conversationRepository.findPartners(now.keySet())) {
+                framesByPartner.computeIfAbsent(partner.getPartnerId(), id -> new ArrayList<>())
+                        .add(PresenceResponse.builder()
+                                .userId(partner.getUserId())
+                                .online(now.get(partner.getUserId()))
+                                .build());
+            }
+            lookup(framesByPartner.keySet()).forEach((partnerId, online) -> {
+                if (!Boolean.FALSE.equals(online)) {
+                    messagingTemplate.convertAndSendToUser(
+                            String.valueOf(partnerId), "/queue/presence", framesByPartner.get(partnerId));
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Presence broadcast failed: {}", e.getMessage());
+        }
+    }
+
+    private static boolean anyAfter(Collection<?> expiries, long now) {
+        for (Object expiry : expiries) {
+            if (Long.parseLong(String.valueOf(expiry)) > now) return true;
+        }
+        return false;
+    }
+
+    private static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static void redis(Runnable operation) {
+        try {
+            operation.run();
+        } catch (Exception e) {
+            log.warn("Presence mirror unavailable: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.sakny.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Geo search over property coordinates.
+ *
+ * <p>With {@code index = database}, candidates are found by geohash prefix on the indexed
+ * {@code properties.geohash} column. With {@code memory}, each node keeps a geohash grid of all
+ * located properties in memory, loaded at startup and updated by its own writes only; meant for tests
+ * and single-node setups. A {@code near} search without a radius uses {@code defaultRadiusKm}; radii
+ * are limited to {@code maxRadiusKm}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sakny.geo")
+public class GeoProperties {
+
+    public enum Index { DATABASE, MEMORY }
+
+    private Index index = Index.DATABASE;
+    private double defaultRadiusKm = 5;
+    private double maxRadiusKm = 50;
+}
@@ -4,6 +4,8 @@ import com.sakny.common.dto.ApiResponse;
 import com.sakny.property.dto.PropertyFilterRequest;
 import com.sakny.property.dto.PropertyRequest;
 import com.sakny.property.dto.PropertyResponse;
+import com.sakny.property.dto.PropertySliceResponse;
+import com.sakny.property.dto.PropertySort;
 import com.sakny.property.service.PropertyService;
 import com.sakny.user.entity.User;
 import io.swagger.v3.oas.annotations.Operation;
@@ -53,6 +55,17 @@ public class PropertyController {
         return ResponseEntity.ok(ApiResponse.success(page));
     }
 
+    @Operation(summary = "Browse properties by cursor",
+            description = "Infinite-scroll browsing without totals. Omit cursor for the first slice, then pass the previous slice's nextCursor with the same sort.")
+    @GetMapping("/browse")
+    public ResponseEntity<ApiResponse<PropertySliceResponse>> browseProperties(
+            @ParameterObject PropertyFilterRequest filter,
+            @RequestParam(defaultValue = "NEWEST") PropertySort sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(ApiResponse.success(propertyService.browseProperties(filter, sort, cursor, limit)));
+    }
+
     @Operation(summary = "Get property by ID")
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<PropertyResponse>> getProperty(@PathVariable Long id) {
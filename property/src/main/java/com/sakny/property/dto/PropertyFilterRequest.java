@@ -12,4 +12,15 @@ public class PropertyFilterRequest {
     private BigDecimal minPrice;
     private BigDecimal maxPrice;
     private Boolean furnished;
+
+    /** Centre of a radius search as "lat,lng"; results are ordered nearest first unless sorted. */
+    private String near;
+    private Double radiusKm;
+
+    /** Bounding box as "south,west,north,east". */
+    private String bbox;
+
+    public boolean hasGeoFilter() {
+        return near != null || bbox != null;
+    }
 }
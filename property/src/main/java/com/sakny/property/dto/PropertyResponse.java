@@ -47,4 +47,7 @@ public class PropertyResponse {
     private Boolean petsAllowed;
     private Boolean smokingAllowed;
     private String preferredTenant;
+
+    /** Distance from the {@code near} point of a radius search, otherwise null. */
+    private Double distanceKm;
 }
@@ -0,0 +1,24 @@
+package com.sakny.property.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One slice of keyset-paginated browsing, without a total count.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropertySliceResponse {
+
+    private List<PropertyResponse> properties;
+
+    /** Cursor for the next slice, in the same sort, or null after the last one. */
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,24 @@
+package com.sakny.property.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Orders supported by keyset browsing. Each sorts by one column and then by ID, so every property
+ * has a unique position a cursor can point at.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PropertySort {
+    NEWEST("createdAt", Sort.Direction.DESC),
+    PRICE_ASC("price", Sort.Direction.ASC),
+    PRICE_DESC("price", Sort.Direction.DESC);
+
+    private final String field;
+    private final Sort.Direction direction;
+
+    public Sort toSort() {
+        return Sort.by(direction, field).and(Sort.by(direction, "id"));
+    }
+}
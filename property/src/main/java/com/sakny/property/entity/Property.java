@@ -1,5 +1,6 @@
 package com.sakny.property.entity;
 
+import com.sakny.property.geo.GeoHash;
 import com.sakny.user.entity.City;
 import com.sakny.user.entity.Governorate;
 import com.sakny.user.entity.User;
@@ -56,6 +57,10 @@ public class Property {
     private BigDecimal latitude;
     private BigDecimal longitude;
 
+    // Derived from the coordinates on every save; indexed for geo search
+    @Column(name = "geohash", length = 12)
+    private String geohash;
+
     @Column(name = "rooms_count")
     private Integer roomsCount;
 
@@ -124,10 +129,17 @@ public class Property {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (isFullyFurnished == null) isFullyFurnished = false;
+        geohash = computeGeohash();
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        geohash = computeGeohash();
+    }
+
+    private String computeGeohash() {
+        if (latitude == null || longitude == null) return null;
+        return GeoHash.encode(latitude.doubleValue(), longitude.doubleValue(), GeoHash.STORED_PRECISION);
     }
 }
@@ -15,7 +15,9 @@ public enum PropertyErrorCode implements ErrorCode {
     CITY_GOVERNORATE_MISMATCH("PROP_005", "City does not belong to the given governorate", HttpStatus.BAD_REQUEST),
     IMAGE_NOT_FOUND("PROP_006", "Image not found", HttpStatus.NOT_FOUND),
     IMAGE_PROPERTY_MISMATCH("PROP_007", "Image does not belong to this property", HttpStatus.FORBIDDEN),
-    USER_NOT_FOUND("PROP_008", "User not found", HttpStatus.NOT_FOUND);
+    USER_NOT_FOUND("PROP_008", "User not found", HttpStatus.NOT_FOUND),
+    INVALID_CURSOR("PROP_009", "Invalid or expired browse cursor", HttpStatus.BAD_REQUEST),
+    INVALID_GEO_FILTER("PROP_010", "Invalid location filter", HttpStatus.BAD_REQUEST);
 
     private final String code;
     private final String message;
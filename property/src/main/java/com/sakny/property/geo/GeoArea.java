@@ -0,0 +1,54 @@
+package com.sakny.property.geo;
+
+/**
+ * A search area: a bounding box, optionally with the circle ({@code near} and {@code radiusKm}) it
+ * was drawn around. Distances use the equirectangular approximation around the centre, which stays
+ * within a fraction of a percent of the great-circle distance at city scale and needs nothing but
+ * arithmetic in SQL.
+ */
+public record GeoArea(double minLat, double minLng, double maxLat, double maxLng,
+                      Double centerLat, Double centerLng, Double radiusKm) {
+
+    public static final double KM_PER_DEGREE = 111.32;
+
+    public static GeoArea box(double south, double west, double north, double east) {
+        return new GeoArea(south, west, north, east, null, null, null);
+    }
+
+    public static GeoArea circle(double latitude, double longitude, double radiusKm) {
+        double dLat = radiusKm / KM_PER_DEGREE;
+        double dLng = radiusKm / (KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+        return new GeoArea(Math.max(latitude - dLat, -90), Math.max(longitude - dLng, -180),
+                Math.min(latitude + dLat, 90), Math.min(longitude + dLng, 180),
+                latitude, longitude, radiusKm);
+    }
+
+    /** The circle restricted to the box, or null if they do not overlap. */
+    public GeoArea within(GeoArea box) {
+        double south = Math.max(minLat, box.minLat), north = Math.min(maxLat, box.maxLat);
+        double west = Math.max(minLng, box.minLng), east = Math.min(maxLng, box.maxLng);
+        if (south > north || west > east) {
+            return null;
+        }
+        return new GeoArea(south, west, north, east, centerLat, centerLng, radiusKm);
+    }
+
+    public boolean isCircle() {
+        return radiusKm != null;
+    }
+
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= minLat && latitude <= maxLat && longitude >= minLng && longitude <= maxLng;
+    }
+
+    /** Kilometres per degree of longitude at the centre. */
+    public double kmPerDegreeLng() {
+        return KM_PER_DEGREE * Math.cos(Math.toRadians(centerLat));
+    }
+
+    public double distanceKm(double latitude, double longitude) {
+        double dy = (latitude - centerLat) * KM_PER_DEGREE;
+        double dx = (longitude - centerLng) * kmPerDegreeLng();
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,106 @@
+package com.sakny.property.geo;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Geohash encoding: a cell of the earth as a base-32 string, where every prefix of a hash is the cell
+ * containing it. Nearby points mostly share prefixes, so an area can be searched as a handful of
+ * prefix ranges on an ordinary B-tree index.
+ */
+public final class GeoHash {
+
+    /** Precision of the stored {@code properties.geohash} column: cells of about 5 m x 5 m. */
+    public static final int STORED_PRECISION = 9;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHash() {
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90, minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean lngBit = true;
+        int bits = 0, ch = 0;
+        while (hash.length() < precision) {
+            if (lngBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch <<= 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch <<= 1;
+                    maxLat = mid;
+                }
+            }
+            lngBit = !lngBit;
+            if (++bits == 5) {
+                hash.append(BASE32[ch]);
+                bits = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /** Height of a cell in degrees of latitude. */
+    static double cellHeight(int precision) {
+        return 180.0 / (1L << (5 * precision / 2));
+    }
+
+    /** Width of a cell in degrees of longitude. */
+    static double cellWidth(int precision) {
+        return 360.0 / (1L << ((5 * precision + 1) / 2));
+    }
+
+    /**
+     * The finest precision, up to {@code maxPrecision}, at which the area is covered by at most
+     * {@code maxCells} cells; 1 if even that is too many.
+     */
+    public static int coverPrecision(GeoArea area, int maxPrecision, int maxCells) {
+        for (int precision = maxPrecision; precision > 1; precision--) {
+            if (cellCount(area, precision) <= maxCells) {
+                return precision;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * The cells of the given precision that together contain the area.
+     */
+    public static Set<String> cover(GeoArea area, int precision) {
+        double height = cellHeight(precision);
+        double width = cellWidth(precision);
+        Set<String> cells = new LinkedHashSet<>();
+        for (double lat = align(area.minLat(), height, -90); lat <= area.maxLat(); lat += height) {
+            for (double lng = align(area.minLng(), width, -180); lng <= area.maxLng(); lng += width) {
+                cells.add(encode(Math.min(lat + height / 2, 90), Math.min(lng + width / 2, 180), precision));
+            }
+        }
+        return cells;
+    }
+
+    private static long cellCount(GeoArea area, int precision) {
+        double height = cellHeight(precision);
+        double width = cellWidth(precision);
+        long rows = (long) Math.floor((area.maxLat() - align(area.minLat(), height, -90)) / height) + 1;
+        long columns = (long) Math.floor((area.maxLng() - align(area.minLng(), width, -180)) / width) + 1;
+        return rows * columns;
+    }
+
+    // Lower edge of the cell containing the value
+    private static double align(double value, double size, double origin) {
+        return origin + Math.floor((value - origin) / size) * size;
+    }
+}
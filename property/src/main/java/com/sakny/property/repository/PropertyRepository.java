@@ -2,12 +2,46 @@ package com.sakny.property.repository;
 
 import com.sakny.property.entity.Property;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
 public interface PropertyRepository extends JpaRepository<Property, Long>, JpaSpecificationExecutor<Property> {
     List<Property> findByOwnerId(Long ownerId);
+
+    /**
+     * Coordinates of every property that has them, for the in-memory geo index.
+     */
+    @Query("""
+        SELECT p.id AS id, p.latitude AS latitude, p.longitude AS longitude FROM Property p
+        WHERE p.latitude IS NOT NULL AND p.longitude IS NOT NULL
+    """)
+    List<Located> findLocated();
+
+    /**
+     * Properties with coordinates but no geohash yet, i.e. saved before the column existed.
+     */
+    @Query("""
+        SELECT p.id AS id, p.latitude AS latitude, p.longitude AS longitude FROM Property p
+        WHERE p.geohash IS NULL AND p.latitude IS NOT NULL AND p.longitude IS NOT NULL
+    """)
+    List<Located> findWithoutGeohash(Limit limit);
+
+    // Leaves updated_at alone: the listing did not change
+    @Modifying
+    @Query("UPDATE Property p SET p.geohash = :geohash WHERE p.id = :id")
+    void setGeohash(@Param("id") Long id, @Param("geohash") String geohash);
+
+    interface Located {
+        Long getId();
+        BigDecimal getLatitude();
+        BigDecimal getLongitude();
+    }
 }
@@ -0,0 +1,70 @@
+package com.sakny.property.service;
+
+import com.sakny.common.exception.BusinessException;
+import com.sakny.property.dto.PropertySort;
+import com.sakny.property.entity.Property;
+import com.sakny.property.exception.PropertyErrorCode;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last property of a browse slice: its sort key and ID, in the sort it was read
+ * with. Encoded for clients as an opaque URL-safe string.
+ */
+record BrowseCursor(PropertySort sort, Comparable<?> key, Long id) {
+
+    static BrowseCursor of(PropertySort sort, Property last) {
+        return new BrowseCursor(sort, sort == PropertySort.NEWEST ? last.getCreatedAt() : last.getPrice(), last.getId());
+    }
+
+    String encode() {
+        String raw = sort.name() + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a cursor issued for the given sort.
+     */
+    static BrowseCursor decode(String cursor, PropertySort sort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !sort.name().equals(parts[0])) {
+                throw new BusinessException(PropertyErrorCode.INVALID_CURSOR);
+            }
+            Comparable<?> key = sort == PropertySort.NEWEST ? LocalDateTime.parse(parts[1]) : new BigDecimal(parts[1]);
+            return new BrowseCursor(sort, key, Long.valueOf(parts[2]));
+        } catch (BusinessException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new BusinessException(PropertyErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    /**
+     * Properties strictly after this position: (key, id) beyond the cursor's in the sort direction.
+     * The OR alone is not sargable, so the predicate also bounds the key inclusively; that bound is
+     * what lets the (key, id) index start the scan at the cursor instead of at the first row.
+     */
+    @SuppressWarnings("unchecked")
+    Predicate predicate(Root<Property> root, CriteriaBuilder cb) {
+        Path<Comparable<Object>> keyPath = root.get(sort.getField());
+        Path<Long> idPath = root.get("id");
+        Comparable<Object> value = (Comparable<Object>) key;
+        if (sort.getDirection() == Sort.Direction.ASC) {
+            return cb.and(cb.greaterThanOrEqualTo(keyPath, value),
+                    cb.or(cb.greaterThan(keyPath, value),
+                            cb.and(cb.equal(keyPath, value), cb.greaterThan(idPath, id))));
+        }
+        return cb.and(cb.lessThanOrEqualTo(keyPath, value),
+                cb.or(cb.lessThan(keyPath, value),
+                        cb.and(cb.equal(keyPath, value), cb.lessThan(idPath, id))));
+    }
+}
@@ -0,0 +1,271 @@
+package com.sakny.property.service;
+
+import com.sakny.common.exception.BusinessException;
+import com.sakny.property.config.GeoProperties;
+import com.sakny.property.dto.PropertyFilterRequest;
+import com.sakny.property.entity.Property;
+import com.sakny.property.exception.PropertyErrorCode;
+import com.sakny.property.geo.GeoArea;
+import com.sakny.property.geo.GeoHash;
+import com.sakny.property.repository.PropertyRepository;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns the {@code near}/{@code radiusKm}/{@code bbox} part of a property filter into query
+ * predicates.
+ *
+ * <p>Candidates come from the geohash index selected by {@link GeoProperties#getIndex()}: prefix
+ * ranges on the {@code properties.geohash} column, or property IDs from an in-memory grid. Either is
+ * a superset of the area; the exact box and radius are then checked on the coordinates in SQL. An
+ * area holding more than {@value #MAX_GRID_IDS} grid entries is left to the coordinate checks alone,
+ * as the IDs would not fit in one statement's bind parameters.
+ *
+ * <p>At startup, properties saved before the geohash column existed are backfilled, and in memory
+ * mode the grid is loaded.
+ */
+@Component
+@Slf4j
+public class PropertyGeoIndex {
+
+    static final int BACKFILL_BATCH_SIZE = 500;
+
+    /** Geohash prefixes OR-ed into one query; more would cost more index probes than they save. */
+    static final int MAX_PREFIXES = 16;
+
+    /** Cells of the in-memory grid, about 5 km x 5 km. */
+    static final int GRID_PRECISION = 5;
+
+    /** An area covering more grid cells than this is answered by scanning the whole grid. */
+    static final int MAX_GRID_CELLS = 1024;
+
+    /** Property IDs bound into one query, well below PostgreSQL's 65,535 parameters per statement. */
+    static final int MAX_GRID_IDS = 10_000;
+
+    private static final BigDecimal KM_PER_DEGREE = BigDecimal.valueOf(GeoArea.KM_PER_DEGREE);
+
+    private final PropertyRepository propertyRepository;
+    private final GeoProperties geoProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    // Memory mode only: grid cell -> property ID -> {latitude, longitude}
+    private final Map<String, Map<Long, double[]>> grid = new ConcurrentHashMap<>();
+    private final Map<Long, String> cellOf = new ConcurrentHashMap<>();
+
+    public PropertyGeoIndex(PropertyRepository propertyRepository,
+                            GeoProperties geoProperties,
+                            PlatformTransactionManager transactionManager) {
+        this.propertyRepository = propertyRepository;
+        this.geoProperties = geoProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        backfillGeohashes();
+        if (inMemory()) {
+            propertyRepository.findLocated().forEach(p ->
+                    put(p.getId(), p.getLatitude().doubleValue(), p.getLongitude().doubleValue()));
+            log.info("In-memory geo index loaded with {} properties", cellOf.size());
+        }
+    }
+
+    private void backfillGeohashes() {
+        int total = 0;
+        int updated;
+        do {
+            Integer batch = transactionTemplate.execute(status -> {
+                List<PropertyRepository.Located> rows = propertyRepository.findWithoutGeohash(Limit.of(BACKFILL_BATCH_SIZE));
+                rows.forEach(p -> propertyRepository.setGeohash(p.getId(), GeoHash.encode(
+                        p.getLatitude().doubleValue(), p.getLongitude().doubleValue(), GeoHash.STORED_PRECISION)));
+                return rows.size();
+            });
+            updated = batch == null ? 0 : batch;
+            total += updated;
+        } while (updated == BACKFILL_BATCH_SIZE);
+        if (total > 0) {
+            log.info("Backfilled geohashes of {} properties", total);
+        }
+    }
+
+    /**
+     * The area the filter searches, or null if it has no location part. A {@code near} point and a
+     * {@code bbox} together search the part of the circle inside the box.
+     */
+    public GeoArea areaOf(PropertyFilterRequest filter) {
+        if (filter.getNear() == null) {
+            if (filter.getRadiusKm() != null) {
+                throw new BusinessException(PropertyErrorCode.INVALID_GEO_FILTER);
+            }
+            return filter.getBbox() == null ? null : parseBox(filter.getBbox());
+        }
+        double[] near = parse(filter.getNear(), 2);
+        checkLatLng(near[0], near[1]);
+        double radiusKm = filter.getRadiusKm() == null ? geoProperties.getDefaultRadiusKm() : filter.getRadiusKm();
+        if (!(radiusKm > 0) || radiusKm > geoProperties.getMaxRadiusKm()) {
+            throw new BusinessException(PropertyErrorCode.INVALID_GEO_FILTER);
+        }
+        GeoArea circle = GeoArea.circle(near[0], near[1], radiusKm);
+        if (filter.getBbox() == null) {
+            return circle;
+        }
+        GeoArea area = circle.within(parseBox(filter.getBbox()));
+        // Disjoint: an empty box at the centre matches nothing and keeps the distance ordering valid
+        return area != null ? area : new GeoArea(1, near[1], 0, near[1], near[0], near[1], radiusKm);
+    }
+
+    private static GeoArea parseBox(String bbox) {
+        double[] box = parse(bbox, 4);
+        checkLatLng(box[0], box[1]);
+        checkLatLng(box[2], box[3]);
+        // West above east would cross the antimeridian, which no listing is near
+        if (box[0] > box[2] || box[1] > box[3]) {
+            throw new BusinessException(PropertyErrorCode.INVALID_GEO_FILTER);
+        }
+        return GeoArea.box(box[0], box[1], box[2], box[3]);
+    }
+
+    private static double[] parse(String value, int count) {
+        String[] parts = value.split(",");
+        if (parts.length != count) {
+            throw new BusinessException(PropertyErrorCode.INVALID_GEO_FILTER);
+        }
+        double[] numbers = new double[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                numbers[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new BusinessException(PropertyErrorCode.INVALID_GEO_FILTER);
+        }
+        return numbers;
+    }
+
+    private static void checkLatLng(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new BusinessException(PropertyErrorCode.INVALID_GEO_FILTER);
+        }
+    }
+
+    /**
+     * Properties inside the area: an index lookup for candidates, then the exact box and, for a
+     * radius search, the distance.
+     */
+    public Predicate predicate(GeoArea area, Root<Property> root, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(inMemory() ? gridCandidates(area, root, cb) : geohashCandidates(area, root, cb));
+        predicates.add(cb.between(root.get("latitude"), BigDecimal.valueOf(area.minLat()), BigDecimal.valueOf(area.maxLat())));
+        predicates.add(cb.between(root.get("longitude"), BigDecimal.valueOf(area.minLng()), BigDecimal.valueOf(area.maxLng())));
+        if (area.isCircle()) {
+            predicates.add(cb.le(squaredDistance(area, root, cb), area.radiusKm() * area.radiusKm()));
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+
+    /**
+     * Squared distance in km² from the centre of a radius search; orders the same as the distance.
+     */
+    public Expression<BigDecimal> squaredDistance(GeoArea area, Root<Property> root, CriteriaBuilder cb) {
+        Expression<BigDecimal> dy = cb.prod(cb.diff(root.<BigDecimal>get("latitude"), BigDecimal.valueOf(area.centerLat())), KM_PER_DEGREE);
+        Expression<BigDecimal> dx = cb.prod(cb.diff(root.<BigDecimal>get("longitude"), BigDecimal.valueOf(area.centerLng())),
+                BigDecimal.valueOf(area.kmPerDegreeLng()));
+        return cb.sum(cb.prod(dx, dx), cb.prod(dy, dy));
+    }
+
+    private Predicate geohashCandidates(GeoArea area, Root<Property> root, CriteriaBuilder cb) {
+        int precision = GeoHash.coverPrecision(area, GeoHash.STORED_PRECISION, MAX_PREFIXES);
+        Expression<String> geohash = root.get("geohash");
+        return cb.or(GeoHash.cover(area, precision).stream()
+                .map(prefix -> cb.like(geohash, prefix + "%"))
+                .toArray(Predicate[]::new));
+    }
+
+    private Predicate gridCandidates(GeoArea area, Root<Property> root, CriteriaBuilder cb) {
+        List<Long> ids = new ArrayList<>();
+        Iterable<Map<Long, double[]>> cells = GeoHash.coverPrecision(area, GRID_PRECISION, MAX_GRID_CELLS) < GRID_PRECISION
+                ? grid.values()
+                : GeoHash.cover(area, GRID_PRECISION).stream().map(grid::get).filter(Objects::nonNull).toList();
+        for (Map<Long, double[]> cell : cells) {
+            collect(cell, area, ids);
+            if (ids.size() > MAX_GRID_IDS) {
+                return cb.conjunction();
+            }
+        }
+        return ids.isEmpty() ? cb.disjunction() : root.get("id").in(ids);
+    }
+
+    private static void collect(Map<Long, double[]> cell, GeoArea area, List<Long> ids) {
+        cell.forEach((id, point) -> {
+            if (area.contains(point[0], point[1])
+                    && (!area.isCircle() || area.distanceKm(point[0], point[1]) <= area.radiusKm())) {
+                ids.add(id);
+            }
+        });
+    }
+
+    /**
+     * Records a property's coordinates, or its removal when they are null, once the current
+     * transaction commits. Only the in-memory index needs this; the column is kept by the entity.
+     */
+    public void updateAfterCommit(Long id, BigDecimal latitude, BigDecimal longitude) {
+        if (!inMemory()) {
+            return;
+        }
+        Runnable update = () -> {
+            if (latitude == null || longitude == null) {
+                remove(id);
+            } else {
+                put(id, latitude.doubleValue(), longitude.doubleValue());
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    private synchronized void put(Long id, double latitude, double longitude) {
+        remove(id);
+        String key = GeoHash.encode(latitude, longitude, GRID_PRECISION);
+        grid.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(id, new double[]{latitude, longitude});
+        cellOf.put(id, key);
+    }
+
+    private synchronized void remove(Long id) {
+        String key = cellOf.remove(id);
+        if (key != null) {
+            grid.computeIfPresent(key, (k, cell) -> {
+                cell.remove(id);
+                return cell.isEmpty() ? null : cell;
+            });
+        }
+    }
+
+    private boolean inMemory() {
+        return geoProperties.getIndex() == GeoProperties.Index.MEMORY;
+    }
+}
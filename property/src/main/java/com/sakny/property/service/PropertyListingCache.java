@@ -0,0 +1,240 @@
+package com.sakny.property.service;
+
+import com.sakny.common.config.BatchEvictingCache;
+import com.sakny.common.config.CacheConfig;
+import com.sakny.property.dto.PropertyFilterRequest;
+import com.sakny.property.dto.PropertyResponse;
+import com.sakny.property.dto.PropertySliceResponse;
+import com.sakny.property.dto.PropertySort;
+import com.sakny.property.entity.Property;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Listing pages and first browse slices in {@link CacheConfig#PROPERTY_LISTINGS}, evicted by tag
+ * instead of all at once.
+ *
+ * <p>Every cached page is registered in the Redis set of each tag that any property matching its
+ * filter must carry: its city, else its governorate, else its type, else the price buckets its range
+ * covers, else its furnished flag; an unfiltered page carries the tag {@code all}. A property carries
+ * the tags of all its own values, so a write evicts exactly the pages registered under a tag of the
+ * property before or after the change. Pages filtered on something else the property does not match
+ * may be evicted too; pages it can appear in never survive.
+ *
+ * <p>Evictions run after the writing transaction commits. Tag sets expire with the pages they index.
+ */
+@Component
+@Slf4j
+public class PropertyListingCache {
+
+    /** Width of a price tag, in the listing currency. */
+    static final BigDecimal PRICE_BUCKET = BigDecimal.valueOf(1000);
+
+    /** A price range covering more buckets than this is tagged {@code all}. */
+    static final int MAX_PRICE_BUCKETS = 20;
+
+    private static final String TAG_PREFIX = CacheConfig.PROPERTY_LISTINGS + ":tag:";
+    private static final String ALL = "all";
+
+    private final CacheManager cacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final DistributionSummary evictedPages;
+
+    public PropertyListingCache(CacheManager cacheManager,
+                                StringRedisTemplate redisTemplate,
+                                MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.redisTemplate = redisTemplate;
+        this.evictedPages = DistributionSummary.builder("sakny.property.listings.evicted")
+                .description("Cached listing pages evicted per property write")
+                .register(meterRegistry);
+    }
+
+    public Page<PropertyResponse> get(PropertyFilterRequest filter, Pageable pageable,
+                                      Supplier<Page<PropertyResponse>> loader) {
+        String page = pageable.isPaged() ? "p=" + pageable.getPageNumber() + "," + pageable.getPageSize() : "p=all";
+        return get(key(filter) + "|" + page + "|s=" + pageable.getSort(), filter, loader);
+    }
+
+    /**
+     * The first slice of keyset browsing; later slices depend on their cursor and are not cached.
+     */
+    public PropertySliceResponse getFirstSlice(PropertyFilterRequest filter, PropertySort sort, int limit,
+                                               Supplier<PropertySliceResponse> loader) {
+        return get(key(filter) + "|browse=" + sort + "," + limit, filter, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, PropertyFilterRequest filter, Supplier<T> loader) {
+        Cache cache = cache();
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null && cached.get() != null) {
+            return (T) cached.get();
+        }
+        T value = loader.get();
+        cache.put(key, value);
+        register(key, tagsOf(filter));
+        return value;
+    }
+
+    /** Tags a property carries, to capture before it changes. */
+    public Set<String> tagsOf(Property property) {
+        Set<String> tags = new LinkedHashSet<>();
+        tags.add(ALL);
+        if (property.getCity() != null) {
+            tags.add("city:" + property.getCity().getId());
+        }
+        if (property.getGovernorate() != null) {
+            tags.add("governorate:" + property.getGovernorate().getId());
+        }
+        if (property.getPropertyType() != null) {
+            tags.add("type:" + property.getPropertyType().toLowerCase(Locale.ROOT));
+        }
+        if (property.getPrice() != null) {
+            tags.add("price:" + bucket(property.getPrice()));
+        }
+        if (property.getIsFullyFurnished() != null) {
+            tags.add("furnished:" + property.getIsFullyFurnished());
+        }
+        return tags;
+    }
+
+    /**
+     * Evicts the pages registered under any of the tags once the current transaction commits.
+     */
+    public void evictAfterCommit(Set<String> tags) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(tags);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(tags);
+            }
+        });
+    }
+
+    private void evict(Set<String> tags) {
+        try {
+            List<String> tagKeys = tags.stream().map(tag -> TAG_PREFIX + tag).toList();
+            Set<String> keys = redisTemplate.opsForSet().union(tagKeys);
+            if (keys == null || keys.isEmpty()) {
+                evictedPages.record(0);
+                return;
+            }
+            Cache cache = cache();
+            if (cache instanceof BatchEvictingCache batch) {
+                batch.evictAll(keys);
+            } else {
+                keys.forEach(cache::evict);
+            }
+            // Remove only what was read: a page registered meanwhile stays indexed
+            Object[] members = keys.toArray();
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    tagKeys.forEach(tagKey -> operations.opsForSet().remove(tagKey, members));
+                    return null;
+                }
+            });
+            evictedPages.record(keys.size());
+        } catch (Exception e) {
+            // Without the index the affected pages are unknown, so fall back to dropping them all
+            log.warn("Tag eviction of property listings failed, clearing the cache: {}", e.getMessage());
+            cache().clear();
+        }
+    }
+
+    private void register(String key, Set<String> tags) {
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (String tag : tags) {
+                        operations.opsForSet().add(TAG_PREFIX + tag, key);
+                        operations.expire(TAG_PREFIX + tag, CacheConfig.PROPERTY_LISTINGS_TTL);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // An unindexed page would survive writes it shows, so drop it
+            log.warn("Could not index property listing page: {}", e.getMessage());
+            cache().evict(key);
+        }
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.PROPERTY_LISTINGS);
+    }
+
+    // Most selective constraint first: each tag alone is necessary for a property to match
+    static Set<String> tagsOf(PropertyFilterRequest filter) {
+        if (filter.getCityId() != null) {
+            return Set.of("city:" + filter.getCityId());
+        }
+        if (filter.getGovernorateId() != null) {
+            return Set.of("governorate:" + filter.getGovernorateId());
+        }
+        if (filter.getPropertyType() != null && !filter.getPropertyType().isBlank()) {
+            return Set.of("type:" + filter.getPropertyType().toLowerCase(Locale.ROOT));
+        }
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null) {
+            long from = bucket(filter.getMinPrice());
+            long to = bucket(filter.getMaxPrice());
+            if (to < from) {
+                return Set.of(); // matches nothing
+            }
+            if (to - from < MAX_PRICE_BUCKETS) {
+                Set<String> tags = new LinkedHashSet<>();
+                for (long b = from; b <= to; b++) {
+                    tags.add("price:" + b);
+                }
+                return tags;
+            }
+        }
+        if (filter.getFurnished() != null) {
+            return Set.of("furnished:" + filter.getFurnished());
+        }
+        return Set.of(ALL);
+    }
+
+    private static long bucket(BigDecimal price) {
+        return price.divide(PRICE_BUCKET, 0, RoundingMode.FLOOR).longValue();
+    }
+
+    static String key(PropertyFilterRequest filter) {
+        List<String> parts = new ArrayList<>();
+        parts.add("g=" + filter.getGovernorateId());
+        parts.add("c=" + filter.getCityId());
+        parts.add("t=" + (filter.getPropertyType() == null ? null : filter.getPropertyType().toLowerCase(Locale.ROOT)));
+        parts.add("min=" + (filter.getMinPrice() == null ? null : filter.getMinPrice().stripTrailingZeros().toPlainString()));
+        parts.add("max=" + (filter.getMaxPrice() == null ? null : filter.getMaxPrice().stripTrailingZeros().toPlainString()));
+        parts.add("f=" + filter.getFurnished());
+        return String.join("|", parts);
+    }
+}
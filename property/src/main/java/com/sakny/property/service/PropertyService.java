@@ -7,10 +7,13 @@ import com.sakny.common.service.StorageService;
 import com.sakny.property.dto.PropertyFilterRequest;
 import com.sakny.property.dto.PropertyRequest;
 import com.sakny.property.dto.PropertyResponse;
+import com.sakny.property.dto.PropertySliceResponse;
+import com.sakny.property.dto.PropertySort;
 import com.sakny.property.entity.Amenity;
 import com.sakny.property.entity.Property;
 import com.sakny.property.entity.PropertyImage;
 import com.sakny.property.exception.PropertyErrorCode;
+import com.sakny.property.geo.GeoArea;
 import com.sakny.property.mapper.PropertyMapper;
 import com.sakny.property.repository.AmenityRepository;
 import com.sakny.property.repository.PropertyImageRepository;
@@ -26,7 +29,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -44,6 +46,9 @@ import java.util.Set;
 @Slf4j
 public class PropertyService {
 
+    private static final int DEFAULT_BROWSE_LIMIT = 20;
+    private static final int MAX_BROWSE_LIMIT = 100;
+
     private final PropertyRepository propertyRepository;
     private final PropertyImageRepository imageRepository;
     private final AmenityRepository amenityRepository;
@@ -52,8 +57,9 @@ public class PropertyService {
     private final UserRepository userRepository;
     private final PropertyMapper propertyMapper;
     private final StorageService storageService;
+    private final PropertyListingCache listingCache;
+    private final PropertyGeoIndex geoIndex;
 
-    @CacheEvict(value = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
     @Transactional
     public PropertyResponse createProperty(Long ownerId, PropertyRequest request, List<MultipartFile> images) {
         User owner = userRepository.findById(ownerId)
@@ -74,17 +80,47 @@ public class PropertyService {
         Property saved = propertyRepository.save(property);
 
         uploadPropertyImages(saved, images);
+        listingCache.evictAfterCommit(listingCache.tagsOf(saved));
+        geoIndex.updateAfterCommit(saved.getId(), saved.getLatitude(), saved.getLongitude());
 
         log.info("Property created with ID {} by user {}", saved.getId(), ownerId);
         return propertyMapper.toResponse(propertyRepository.findById(saved.getId()).orElse(saved));
     }
 
-    @Cacheable(value = CacheConfig.PROPERTY_LISTINGS, key = "{#filter, #pageable}")
+    /**
+     * Filtered listing page. A radius search ({@code near}) is ordered nearest first unless the
+     * pageable is sorted, and reports each property's distance. Location searches are not cached.
+     */
     @Transactional(readOnly = true)
     public Page<PropertyResponse> getProperties(PropertyFilterRequest filter, Pageable pageable) {
-        Page<PropertyResponse> page = propertyRepository.findAll(buildSpec(filter), pageable)
-                .map(propertyMapper::toResponse);
-        return new RestPage<>(page);
+        GeoArea area = geoIndex.areaOf(filter);
+        if (area != null) {
+            Page<PropertyResponse> page = propertyRepository.findAll(buildSpec(filter, area), pageable)
+                    .map(property -> withDistance(propertyMapper.toResponse(property), area));
+            return new RestPage<>(page);
+        }
+        return listingCache.get(filter, pageable, () -> {
+            Page<PropertyResponse> page = propertyRepository.findAll(buildSpec(filter, null), pageable)
+                    .map(propertyMapper::toResponse);
+            return new RestPage<>(page);
+        });
+    }
+
+    /**
+     * Keyset-paginated browsing for infinite scroll: no count query and no OFFSET, however deep the
+     * client scrolls. {@code cursor} is the previous slice's {@code nextCursor} (null for the first
+     * slice) and must have been issued for the same sort.
+     */
+    @Transactional(readOnly = true)
+    public PropertySliceResponse browseProperties(PropertyFilterRequest filter, PropertySort sort,
+                                                  String cursor, Integer limit) {
+        int size = limit == null ? DEFAULT_BROWSE_LIMIT : Math.max(1, Math.min(limit, MAX_BROWSE_LIMIT));
+        GeoArea area = geoIndex.areaOf(filter);
+        BrowseCursor after = cursor == null || cursor.isBlank() ? null : BrowseCursor.decode(cursor, sort);
+        if (after == null && area == null) {
+            return listingCache.getFirstSlice(filter, sort, size, () -> browse(filter, null, sort, null, size));
+        }
+        return browse(filter, area, sort, after, size);
     }
 
     @Cacheable(value = CacheConfig.PROPERTIES, key = "#id")
@@ -95,10 +131,7 @@ public class PropertyService {
         return propertyMapper.toResponse(property);
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = CacheConfig.PROPERTIES, key = "#propertyId"),
-            @CacheEvict(value = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
-    })
+    @CacheEvict(value = CacheConfig.PROPERTIES, key = "#propertyId")
     @Transactional
     public PropertyResponse updateProperty(Long ownerId, Long propertyId, PropertyRequest request) {
         Property property = getOwnedProperty(ownerId, propertyId);
@@ -114,6 +147,7 @@ public class PropertyService {
         }
 
         Set<Amenity> amenities = resolveAmenities(request.getAmenityIds());
+        Set<String> tags = new HashSet<>(listingCache.tagsOf(property));
 
         property.setTitle(request.getTitle());
         property.setDescription(request.getDescription());
@@ -131,13 +165,13 @@ public class PropertyService {
         property.setAvailableFrom(request.getAvailableFrom());
         property.setAmenities(amenities);
 
+        tags.addAll(listingCache.tagsOf(property));
+        listingCache.evictAfterCommit(tags);
+        geoIndex.updateAfterCommit(propertyId, request.getLatitude(), request.getLongitude());
         return propertyMapper.toResponse(propertyRepository.save(property));
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = CacheConfig.PROPERTIES, key = "#propertyId"),
-            @CacheEvict(value = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
-    })
+    @CacheEvict(value = CacheConfig.PROPERTIES, key = "#propertyId")
     @Transactional
     public void deleteProperty(Long ownerId, Long propertyId) {
         Property property = getOwnedProperty(ownerId, propertyId);
@@ -154,27 +188,24 @@ public class PropertyService {
         }
 
         propertyRepository.delete(property);
+        listingCache.evictAfterCommit(listingCache.tagsOf(property));
+        geoIndex.updateAfterCommit(propertyId, null, null);
         log.info("Property {} deleted by owner {}", propertyId, ownerId);
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = CacheConfig.PROPERTIES, key = "#propertyId"),
-            @CacheEvict(value = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
-    })
+    @CacheEvict(value = CacheConfig.PROPERTIES, key = "#propertyId")
     @Transactional
     public PropertyResponse addImages(Long ownerId, Long propertyId, List<MultipartFile> images) {
         Property property = getOwnedProperty(ownerId, propertyId);
         uploadPropertyImages(property, images);
+        listingCache.evictAfterCommit(listingCache.tagsOf(property));
         return propertyMapper.toResponse(propertyRepository.findById(propertyId).orElse(property));
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = CacheConfig.PROPERTIES, key = "#propertyId"),
-            @CacheEvict(value = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
-    })
+    @CacheEvict(value = CacheConfig.PROPERTIES, key = "#propertyId")
     @Transactional
     public PropertyResponse deleteImage(Long ownerId, Long propertyId, Long imageId) {
-        getOwnedProperty(ownerId, propertyId);
+        Property property = getOwnedProperty(ownerId, propertyId);
 
         PropertyImage image = imageRepository.findById(imageId)
                 .orElseThrow(() -> new BusinessException(PropertyErrorCode.IMAGE_NOT_FOUND));
@@ -191,6 +222,7 @@ public class PropertyService {
         }
 
         imageRepository.delete(image);
+        listingCache.evictAfterCommit(listingCache.tagsOf(property));
         return propertyMapper.toResponse(propertyRepository.findById(propertyId)
                 .orElseThrow(() -> new BusinessException(PropertyErrorCode.PROPERTY_NOT_FOUND)));
     }
@@ -202,6 +234,32 @@ public class PropertyService {
 
     // ===== Helpers =====
 
+    private PropertySliceResponse browse(PropertyFilterRequest filter, GeoArea area, PropertySort sort,
+                                         BrowseCursor after, int size) {
+        Specification<Property> spec = buildSpec(filter, area);
+        if (after != null) {
+            spec = spec.and((root, query, cb) -> after.predicate(root, cb));
+        }
+        // One extra row tells whether another slice exists, instead of a count
+        List<Property> rows = propertyRepository.findBy(spec, q -> q.sortBy(sort.toSort()).limit(size + 1).all());
+
+        boolean hasMore = rows.size() > size;
+        List<Property> slice = hasMore ? rows.subList(0, size) : rows;
+        return PropertySliceResponse.builder()
+                .properties(slice.stream().map(p -> withDistance(propertyMapper.toResponse(p), area)).toList())
+                .nextCursor(hasMore ? BrowseCursor.of(sort, slice.get(size - 1)).encode() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static PropertyResponse withDistance(PropertyResponse response, GeoArea area) {
+        if (area != null && area.isCircle() && response.getLatitude() != null && response.getLongitude() != null) {
+            double km = area.distanceKm(response.getLatitude().doubleValue(), response.getLongitude().doubleValue());
+            response.setDistanceKm(Math.round(km * 100) / 100.0);
+        }
+        return response;
+    }
+
     private Property getOwnedProperty(Long ownerId, Long propertyId) {
         Property property = propertyRepository.findById(propertyId)
                 .orElseThrow(() -> new BusinessException(PropertyErrorCode.PROPERTY_NOT_FOUND));
@@ -244,7 +302,7 @@ public class PropertyService {
         }
     }
 
-    private Specification<Property> buildSpec(PropertyFilterRequest filter) {
+    private Specification<Property> buildSpec(PropertyFilterRequest filter, GeoArea area) {
         return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
@@ -267,6 +325,13 @@ public class PropertyService {
             if (filter.getFurnished() != null) {
                 predicates.add(cb.equal(root.get("isFullyFurnished"), filter.getFurnished()));
             }
+            if (area != null) {
+                predicates.add(geoIndex.predicate(area, root, cb));
+                // Nearest first; replaced by an explicit sort, and dropped from count queries
+                if (area.isCircle() && query.getResultType() != Long.class) {
+                    query.orderBy(cb.asc(geoIndex.squaredDistance(area, root, cb)), cb.asc(root.get("id")));
+                }
+            }
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
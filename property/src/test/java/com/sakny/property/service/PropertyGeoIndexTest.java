@@ -0,0 +1,98 @@
+package com.sakny.property.service;
+
+import com.sakny.property.config.GeoProperties;
+import com.sakny.property.entity.Property;
+import com.sakny.property.geo.GeoArea;
+import com.sakny.property.repository.PropertyRepository;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PropertyGeoIndexTest {
+
+    private final PropertyRepository propertyRepository = mock(PropertyRepository.class);
+    private final CriteriaBuilder cb = mock(CriteriaBuilder.class);
+    private final Path<Object> idPath = mock();
+    private final Root<Property> root = mock();
+    private final List<PropertyRepository.Located> located = new ArrayList<>();
+
+    private PropertyGeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        GeoProperties geoProperties = new GeoProperties();
+        geoProperties.setIndex(GeoProperties.Index.MEMORY);
+        when(propertyRepository.findLocated()).thenReturn(located);
+        doReturn(idPath).when(root).get("id");
+        index = new PropertyGeoIndex(propertyRepository, geoProperties, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void radiusSearchBindsTheIdsInsideTheCircle() {
+        locate(1L, 30.0444, 31.2357);  // Cairo
+        locate(2L, 30.0500, 31.2400);  // under 1 km away
+        locate(3L, 31.2001, 29.9187);  // Alexandria
+        index.onApplicationReady();
+
+        index.predicate(GeoArea.circle(30.0444, 31.2357, 5), root, cb);
+
+        assertThat(boundIds()).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void areaWithoutPropertiesMatchesNothing() {
+        locate(1L, 30.0444, 31.2357);
+        index.onApplicationReady();
+
+        index.predicate(GeoArea.box(24.0, 33.0, 25.0, 34.0), root, cb);
+
+        verify(cb).disjunction();
+        verify(idPath, never()).in(any(Collection.class));
+    }
+
+    @Test
+    void boxHoldingMoreIdsThanOneStatementCanBindFallsBackToCoordinates() {
+        for (long id = 1; id <= PropertyGeoIndex.MAX_GRID_IDS + 1; id++) {
+            locate(id, 22.0 + (id % 1000) * 0.01, 25.0 + (id / 1000) * 0.5);
+        }
+        index.onApplicationReady();
+
+        index.predicate(GeoArea.box(-90, -180, 90, 180), root, cb);
+
+        verify(cb).conjunction();
+        verify(idPath, never()).in(any(Collection.class));
+    }
+
+    private void locate(long id, double latitude, double longitude) {
+        PropertyRepository.Located property = mock(PropertyRepository.Located.class);
+        when(property.getId()).thenReturn(id);
+        when(property.getLatitude()).thenReturn(BigDecimal.valueOf(latitude));
+        when(property.getLongitude()).thenReturn(BigDecimal.valueOf(longitude));
+        located.add(property);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Long> boundIds() {
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(idPath).in(ids.capture());
+        return ids.getValue();
+    }
+}
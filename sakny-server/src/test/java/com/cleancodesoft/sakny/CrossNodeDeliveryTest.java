@@ -0,0 +1,120 @@
+package com.cleancodesoft.sakny;
+
+import com.sakny.auth.service.JwtService;
+import com.sakny.common.model.Role;
+import com.sakny.user.entity.User;
+import com.sakny.user.repository.UserRepository;
+import io.minio.MinioClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Two nodes with {@code sakny.websocket.broker.mode=redis} on one database and one Redis: a message
+ * sent on one node to a user destination reaches that user's session on the other.
+ */
+class CrossNodeDeliveryTest {
+
+    private static ConfigurableApplicationContext node1;
+    private static ConfigurableApplicationContext node2;
+
+    @BeforeAll
+    static void startNodes() {
+        node1 = startNode();
+        node2 = startNode();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (node2 != null) node2.close();
+        if (node1 != null) node1.close();
+    }
+
+    @Test
+    void userMessageSentOnOneNodeReachesASessionOnTheOther() throws Exception {
+        User user = node1.getBean(UserRepository.class).save(User.builder()
+                .email("ws-" + UUID.randomUUID() + "@example.com")
+                .password("{noop}password")
+                .name("WebSocket user")
+                .role(Role.USER)
+                .build());
+        String token = node1.getBean(JwtService.class).generateToken(user);
+
+        WebSocketStompClient client = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new StringMessageConverter());
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        int port = ((WebServerApplicationContext) node1).getWebServer().getPort();
+        StompSession session = client.connectAsync("http://localhost:{port}/api/ws", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() {}, port).get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        session.subscribe("/user/queue/test", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((String) payload);
+            }
+        });
+
+        // The subscription is registered asynchronously, so keep sending until one arrives
+        SimpMessagingTemplate node2Template = node2.getBean(SimpMessagingTemplate.class);
+        String message = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (message == null && System.nanoTime() < deadline) {
+            // The session's principal is the authenticated user, named by their email
+            node2Template.convertAndSendToUser(user.getUsername(), "/queue/test", "from node 2");
+            message = received.poll(200, TimeUnit.MILLISECONDS);
+        }
+
+        session.disconnect();
+        client.stop();
+        assertThat(message).isEqualTo("from node 2");
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        List<String> args = new ArrayList<>();
+        EmbeddedServices.properties().forEach((name, value) -> args.add("--" + name + "=" + value));
+        args.add("--server.port=0");
+        args.add("--sakny.websocket.broker.mode=redis");
+        return new SpringApplicationBuilder(SaknyApplication.class)
+                .profiles("test")
+                .initializers(context -> context.addBeanFactoryPostProcessor(beanFactory -> {
+                    // MinIO is not running; the real client checks its bucket at startup
+                    ((BeanDefinitionRegistry) beanFactory).removeBeanDefinition("minioClient");
+                    beanFactory.registerSingleton("minioClient", mock(MinioClient.class));
+                }))
+                .run(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,64 @@
+package com.cleancodesoft.sakny;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.Map;
+
+/**
+ * PostgreSQL and Redis for the integration tests, started in the test JVM on free ports the first
+ * time a test asks for them and stopped when the JVM exits. The application creates the schema
+ * with its own Liquibase changelog, so every test class sees the same database.
+ */
+final class EmbeddedServices {
+
+    private static EmbeddedPostgres postgres;
+    private static RedisServer redis;
+    private static int redisPort;
+
+    private EmbeddedServices() {
+    }
+
+    /**
+     * Spring properties pointing the application at the embedded servers.
+     */
+    static synchronized Map<String, Object> properties() {
+        if (postgres == null) {
+            start();
+        }
+        return Map.of(
+                "spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username", "postgres",
+                "spring.datasource.password", "postgres",
+                "spring.data.redis.host", "localhost",
+                "spring.data.redis.port", redisPort);
+    }
+
+    private static void start() {
+        try {
+            postgres = EmbeddedPostgres.builder().start();
+            redisPort = freePort();
+            redis = new RedisServer(redisPort);
+            redis.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the embedded services", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                redis.stop();
+                postgres.close();
+            } catch (IOException ignored) {
+                // The JVM is exiting
+            }
+        }));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cleancodesoft.sakny;
+
+import com.sakny.common.model.Role;
+import com.sakny.message.dto.request.SendMessageRequest;
+import com.sakny.message.repository.ConversationRepository;
+import com.sakny.message.service.MessageService;
+import com.sakny.user.entity.User;
+import com.sakny.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The inbox is read from the participants' summary rows in one statement, whatever the number of
+ * conversations.
+ */
+class InboxStatementsTest extends IntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Test
+    void inboxIsOneStatementForAnyNumberOfConversations() {
+        Long userId = createUser().getId();
+        send(createUser().getId(), userId);
+
+        assertThat(inboxStatements(userId, 1)).isEqualTo(1);
+
+        for (int i = 0; i < 9; i++) {
+            Long partnerId = createUser().getId();
+            send(partnerId, userId);
+            send(userId, partnerId);
+        }
+
+        assertThat(inboxStatements(userId, 10)).isEqualTo(1);
+    }
+
+    private long inboxStatements(Long userId, int conversations) {
+        return statementsDuring(() -> {
+            var inbox = conversationRepository.findInboxByUserId(userId);
+            assertThat(inbox).hasSize(conversations);
+            // Every column the inbox shows is read from the one row set
+            inbox.forEach(entry -> {
+                assertThat(entry.getOtherUserName()).isNotNull();
+                assertThat(entry.getLastMessageContent()).isNotNull();
+                assertThat(entry.getUnreadCount()).isNotNull();
+            });
+        });
+    }
+
+    private void send(Long senderId, Long receiverId) {
+        SendMessageRequest request = new SendMessageRequest();
+        request.setReceiverId(receiverId);
+        request.setContent("Hello from " + senderId);
+        messageService.sendMessage(senderId, request);
+    }
+
+    private User createUser() {
+        return userRepository.save(User.builder()
+                .email("inbox-" + UUID.randomUUID() + "@example.com")
+                .password("{noop}password")
+                .name("Inbox user")
+                .role(Role.USER)
+                .build());
+    }
+}
@@ -0,0 +1,42 @@
+package com.cleancodesoft.sakny;
+
+import io.minio.MinioClient;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * The whole application on {@link EmbeddedServices}, with the {@code test} profile. MinIO is
+ * replaced by a mock, as the real client checks its bucket at startup.
+ */
+@SpringBootTest(classes = SaknyApplication.class)
+@ActiveProfiles("test")
+abstract class IntegrationTest {
+
+    @MockitoBean
+    MinioClient minioClient;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @DynamicPropertySource
+    static void embeddedServices(DynamicPropertyRegistry registry) {
+        EmbeddedServices.properties().forEach((name, value) -> registry.add(name, () -> value));
+    }
+
+    /**
+     * Runs the action and returns the number of JDBC statements Hibernate prepared meanwhile.
+     */
+    protected long statementsDuring(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
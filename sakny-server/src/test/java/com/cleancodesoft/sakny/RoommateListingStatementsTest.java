@@ -0,0 +1,147 @@
+package com.cleancodesoft.sakny;
+
+import com.sakny.common.dto.RoommateFilterRequest;
+import com.sakny.common.model.Gender;
+import com.sakny.common.model.PetStatus;
+import com.sakny.common.model.Role;
+import com.sakny.common.model.RoommateType;
+import com.sakny.common.model.SleepSchedule;
+import com.sakny.common.model.SmokingStatus;
+import com.sakny.user.entity.City;
+import com.sakny.user.entity.Governorate;
+import com.sakny.user.entity.PreferredArea;
+import com.sakny.user.entity.User;
+import com.sakny.user.entity.UserProfile;
+import com.sakny.user.mapper.ProfileMapper;
+import com.sakny.user.repository.UserProfileRepository;
+import com.sakny.user.repository.UserRepository;
+import com.sakny.user.service.ProfileService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements behind one page of the roommate listing: the page, its count and one query for the
+ * details of all profiles on it, however many there are.
+ */
+class RoommateListingStatementsTest extends IntegrationTest {
+
+    private static final int CANDIDATES = 12;
+    private static final int CAIRO = 1;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProfileRepository profileRepository;
+
+    @Autowired
+    private ProfileMapper profileMapper;
+
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long seekerId;
+    private final List<Long> candidateIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            seekerId = createProfile(0).getUser().getId();
+            // Distinct cities per profile, so their names cannot come from the persistence context
+            for (int i = 1; i <= CANDIDATES; i++) {
+                candidateIds.add(createProfile(i).getUser().getId());
+            }
+        });
+        // Warms the seeker's block relations, which are cached after the first lookup
+        profileService.getRoommates(seekerId, new RoommateFilterRequest(), PageRequest.of(0, 1));
+    }
+
+    @Test
+    void roommatePageCostsTheSameStatementsWhateverItsSize() {
+        long small = statementsDuring(() ->
+                assertThat(profileService.getRoommates(seekerId, new RoommateFilterRequest(), PageRequest.of(0, 2)))
+                        .hasSize(2));
+        long large = statementsDuring(() ->
+                assertThat(profileService.getRoommates(seekerId, new RoommateFilterRequest(), PageRequest.of(0, 10)))
+                        .hasSize(10));
+
+        // The page, its count and the details of the profiles on it
+        assertThat(small).isEqualTo(3);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void scoredRoommatePageCostsTheSameStatementsWhateverItsSize() {
+        long small = statementsDuring(() ->
+                assertThat(profileService.getRoommatesWithScores(seekerId, new RoommateFilterRequest(), PageRequest.of(0, 2)))
+                        .hasSize(2));
+        long large = statementsDuring(() ->
+                assertThat(profileService.getRoommatesWithScores(seekerId, new RoommateFilterRequest(), PageRequest.of(0, 10)))
+                        .hasSize(10));
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void detailsOfAnyNumberOfProfilesAreOneStatement() {
+        assertThat(mappedDetailStatements(candidateIds.subList(0, 2))).isEqualTo(1);
+        assertThat(mappedDetailStatements(candidateIds)).isEqualTo(1);
+    }
+
+    // Loads and maps the profiles as the listing does, in a fresh persistence context
+    private long mappedDetailStatements(List<Long> userIds) {
+        return statementsDuring(() -> transactionTemplate.executeWithoutResult(status -> {
+            List<UserProfile> profiles = profileRepository.findAllByUserIdInWithDetails(userIds);
+            assertThat(profiles).hasSize(userIds.size());
+            profiles.forEach(profileMapper::toResponse);
+        }));
+    }
+
+    private UserProfile createProfile(int i) {
+        User user = userRepository.save(User.builder()
+                .email("roommate-" + UUID.randomUUID() + "@example.com")
+                .password("{noop}password")
+                .name("Roommate " + i)
+                .role(Role.USER)
+                .build());
+        UserProfile profile = UserProfile.builder()
+                .user(user)
+                .age(20 + i)
+                .gender(Gender.MALE)
+                .currentGovernorate(entityManager.getReference(Governorate.class, CAIRO))
+                .currentCity(entityManager.getReference(City.class, 3 * i + 1))
+                .personalityTraits("[]")
+                .smoking(SmokingStatus.NON_SMOKER)
+                .pets(PetStatus.NO_PETS)
+                .sleepSchedule(SleepSchedule.FLEXIBLE)
+                .budgetMin(1000)
+                .budgetMax(5000)
+                .roommateGender(Gender.MALE)
+                .roommateType(RoommateType.DONT_MIND)
+                .isComplete(true)
+                .build();
+        for (int city = 3 * i + 2; city <= 3 * i + 3; city++) {
+            profile.addPreferredArea(PreferredArea.builder()
+                    .governorate(entityManager.getReference(Governorate.class, CAIRO))
+                    .city(entityManager.getReference(City.class, city))
+                    .build());
+        }
+        return profileRepository.save(profile);
+    }
+}
@@ -0,0 +1,34 @@
+package com.sakny.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tuning for roommate match scoring.
+ *
+ * <p>Candidate pools smaller than {@code parallelThreshold} are scored sequentially on the calling
+ * thread; larger pools are split across a dedicated fork-join pool of at most {@code parallelism}
+ * workers. At most {@code listCacheSize} seekers keep a cached match list; profile changes waiting to
+ * be applied to those lists are bounded by {@code updateQueueCapacity}. Match features are cached for
+ * at most {@code featureCacheSize} profiles; it should cover every complete profile, or index rebuilds
+ * recompute the rest.
+ *
+ * <p>With {@code budgetOverlapRequired}, candidates whose budget range does not intersect the seeker's
+ * are treated as a hard mismatch and never scored. The in-memory candidate index is reloaded from the
+ * database once older than {@code indexMaxAge}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sakny.matching")
+public class MatchingProperties {
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int parallelThreshold = 5000;
+    private int listCacheSize = 10000;
+    private int updateQueueCapacity = 1000;
+    private int featureCacheSize = 200000;
+    private boolean budgetOverlapRequired = true;
+    private Duration indexMaxAge = Duration.ofMinutes(10);
+}
@@ -0,0 +1,22 @@
+package com.sakny.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tuning for the block relation cache.
+ *
+ * <p>Relations of at most {@code blockCacheSize} users are kept in memory. Blocking and unblocking
+ * evict both users on every node; {@code blockCacheTtl} bounds how long an entry can outlive a missed
+ * eviction, e.g. while Redis is unreachable.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sakny.safety")
+public class SafetyProperties {
+    private int blockCacheSize = 50000;
+    private Duration blockCacheTtl = Duration.ofMinutes(10);
+}
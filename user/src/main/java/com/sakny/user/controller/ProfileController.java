@@ -125,7 +125,16 @@ public class ProfileController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
-    @Operation(summary = "Browse roommates with match scores", description = "Returns roommates ranked by compatibility score with the authenticated user.")
+    @Operation(summary = "Explain compatibility with another user", description = "Returns the natural-language explanation and suggested discussion topics for a match. Listings only carry scores and breakdowns; clients fetch this when a card is expanded.")
+    @GetMapping("/{userId}/compatibility/explanation")
+    public ResponseEntity<ApiResponse<MatchExplanationResponse>> getCompatibilityExplanation(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long userId) {
+        MatchExplanationResponse response = profileService.getCompatibilityExplanation(user.getId(), userId);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @Operation(summary = "Browse roommates with match scores", description = "Returns roommates ranked by compatibility score with the authenticated user. Explanations are fetched per candidate from /{userId}/compatibility/explanation.")
     @GetMapping("/roommates/scored")
     public ResponseEntity<ApiResponse<java.util.List<MatchScoreResponse>>> getRoommatesWithScores(
             @AuthenticationPrincipal User user,
@@ -135,6 +144,16 @@ public class ProfileController {
         return ResponseEntity.ok(ApiResponse.success(results));
     }
 
+    @Operation(summary = "Recommended roommates", description = "Ranks every complete profile matching the filters by compatibility with the authenticated user and returns the requested page of that global ranking (top 200 only).")
+    @GetMapping("/roommates/recommended")
+    public ResponseEntity<ApiResponse<Page<MatchScoreResponse>>> getRecommendedRoommates(
+            @AuthenticationPrincipal User user,
+            @ParameterObject RoommateFilterRequest filter,
+            @PageableDefault(size = 20) Pageable pageable) {
+        Page<MatchScoreResponse> page = profileService.getRecommendedRoommates(user.getId(), filter, pageable);
+        return ResponseEntity.ok(ApiResponse.success(page));
+    }
+
     @Operation(summary = "Save a profile", description = "Bookmarks another user's profile for the authenticated user.")
     @PostMapping("/{userId}/save")
     public ResponseEntity<ApiResponse<Void>> saveProfile(
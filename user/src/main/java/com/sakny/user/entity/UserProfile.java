@@ -119,6 +119,12 @@ public class UserProfile {
     @Builder.Default
     private Boolean isComplete = false;
 
+    // Incremented in the database on every profile edit (UserProfileRepository.incrementVersion);
+    // part of the match score cache key
+    @Column(name = "profile_version", nullable = false)
+    @Builder.Default
+    private Long profileVersion = 0L;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,8 @@
+package com.sakny.user.event;
+
+/**
+ * Published when a user's account is deleted. Listeners holding state about the user should drop it
+ * after the surrounding transaction commits.
+ */
+public record AccountDeletedEvent(Long userId) {
+}
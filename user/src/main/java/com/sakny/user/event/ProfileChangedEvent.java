@@ -0,0 +1,14 @@
+package com.sakny.user.event;
+
+import java.time.Instant;
+
+/**
+ * Published when a user's profile is created or edited. Listeners that keep derived match data
+ * should react after the surrounding transaction commits.
+ */
+public record ProfileChangedEvent(Long userId, Instant occurredAt) {
+
+    public ProfileChangedEvent(Long userId) {
+        this(userId, Instant.now());
+    }
+}
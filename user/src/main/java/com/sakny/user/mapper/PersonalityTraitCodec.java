@@ -0,0 +1,54 @@
+package com.sakny.user.mapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.mapstruct.Named;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Converts the {@code personality_traits} JSON column to and from a list of traits. Shared by
+ * {@link ProfileMapper} and the matching code so both parse the column the same way, with one
+ * reusable reader and writer.
+ */
+@Component
+public class PersonalityTraitCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader READER = MAPPER.readerFor(new TypeReference<List<String>>() {});
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    @Named("serializeTraits")
+    public String serializeTraits(List<String> traits) {
+        if (traits == null) return "[]";
+        return write(traits);
+    }
+
+    @Named("serializeTraitsIgnoreNull")
+    public String serializeTraitsIgnoreNull(List<String> traits) {
+        if (traits == null || traits.isEmpty()) return null; // Return null so IGNORE strategy skips it
+        return write(traits);
+    }
+
+    @Named("deserializeTraits")
+    public List<String> deserializeTraits(String json) {
+        if (json == null || json.isBlank()) return List.of();
+        try {
+            return READER.readValue(json);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to deserialize personality traits", e);
+        }
+    }
+
+    private String write(List<String> traits) {
+        try {
+            return WRITER.writeValueAsString(traits);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize personality traits", e);
+        }
+    }
+}
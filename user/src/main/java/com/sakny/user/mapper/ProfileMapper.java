@@ -1,8 +1,5 @@
 package com.sakny.user.mapper;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sakny.common.dto.ProfileRequest;
 import com.sakny.common.dto.ProfileResponse;
 import com.sakny.common.dto.ProfileUpdateRequest;
@@ -13,9 +10,7 @@ import com.sakny.user.entity.User;
 import com.sakny.user.entity.UserProfile;
 import org.mapstruct.*;
 
-import java.util.List;
-
-@Mapper(componentModel = "spring", uses = {LocationMapper.class, PreferredAreaMapper.class},
+@Mapper(componentModel = "spring", uses = {LocationMapper.class, PreferredAreaMapper.class, PersonalityTraitCodec.class},
         nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.SET_TO_NULL)
 public interface ProfileMapper {
 
@@ -29,6 +24,7 @@ public interface ProfileMapper {
     @Mapping(target = "currentGovernorate", source = "currentGovernorate")
     @Mapping(target = "currentCity", source = "currentCity")
     @Mapping(target = "isComplete", ignore = true)
+    @Mapping(target = "profileVersion", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "preferredAreas", ignore = true) // handled manually due to bidirectional relation
@@ -66,6 +62,7 @@ public interface ProfileMapper {
     @Mapping(target = "currentGovernorate", source = "currentGovernorate")
     @Mapping(target = "currentCity", source = "currentCity")
     @Mapping(target = "isComplete", ignore = true)
+    @Mapping(target = "profileVersion", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "preferredAreas", ignore = true) // handled manually due to bidirectional relation
@@ -99,36 +96,6 @@ public interface ProfileMapper {
 
     // ===== Custom mapping methods =====
 
-    @Named("serializeTraits")
-    default String serializeTraits(List<String> traits) {
-        if (traits == null) return "[]";
-        try {
-            return new ObjectMapper().writeValueAsString(traits);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize personality traits", e);
-        }
-    }
-
-    @Named("serializeTraitsIgnoreNull")
-    default String serializeTraitsIgnoreNull(List<String> traits) {
-        if (traits == null || traits.isEmpty()) return null; // Return null so IGNORE strategy skips it
-        try {
-            return new ObjectMapper().writeValueAsString(traits);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize personality traits", e);
-        }
-    }
-
-    @Named("deserializeTraits")
-    default List<String> deserializeTraits(String json) {
-        if (json == null || json.isBlank()) return List.of();
-        try {
-            return new ObjectMapper().readValue(json, new TypeReference<List<String>>() {});
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to deserialize personality traits", e);
-        }
-    }
-
     default String mapEnum(Enum<?> value) {
         return value != null ? value.name() : null;
     }
@@ -0,0 +1,22 @@
+package com.sakny.user.repository;
+
+import com.sakny.user.entity.PersonalityTrait;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface PersonalityTraitRepository extends JpaRepository<PersonalityTrait, Integer> {
+
+    Optional<PersonalityTrait> findByName(String name);
+
+    // Runs in its own transaction so new traits can be registered while scoring inside a read-only one
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "INSERT INTO personality_traits (name) VALUES (:name) ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name);
+}
@@ -6,19 +6,53 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserProfileRepository extends JpaRepository<UserProfile, Long>, JpaSpecificationExecutor<UserProfile> {
 
     @Query("SELECT p FROM UserProfile p " +
-            "LEFT JOIN FETCH p.preferredAreas " +
+            "LEFT JOIN FETCH p.preferredAreas pa " +
+            "LEFT JOIN FETCH pa.governorate " +
+            "LEFT JOIN FETCH pa.city " +
             "LEFT JOIN FETCH p.currentGovernorate " +
             "LEFT JOIN FETCH p.currentCity " +
             "LEFT JOIN FETCH p.user " +
             "WHERE p.user.id = :userId")
     Optional<UserProfile> findByUserIdWithDetails(@Param("userId") Long userId);
 
+    @Query("SELECT DISTINCT p FROM UserProfile p " +
+            "LEFT JOIN FETCH p.preferredAreas pa " +
+            "LEFT JOIN FETCH pa.governorate " +
+            "LEFT JOIN FETCH pa.city " +
+            "LEFT JOIN FETCH p.currentGovernorate " +
+            "LEFT JOIN FETCH p.currentCity " +
+            "LEFT JOIN FETCH p.user " +
+            "WHERE p.user.id IN :userIds")
+    List<UserProfile> findAllByUserIdInWithDetails(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT p.id AS id, p.user.id AS userId, p.profileVersion AS profileVersion FROM UserProfile p " +
+            "WHERE p.isComplete = true")
+    List<ProfileVersion> findCompleteProfileVersions();
+
+    /**
+     * Increments the profile's version in the row and returns the new value. The row stays locked
+     * until the transaction ends, so concurrent edits get distinct versions in commit order.
+     */
+    @Query(value = "UPDATE user_profiles SET profile_version = profile_version + 1 WHERE id = :id " +
+            "RETURNING profile_version", nativeQuery = true)
+    long incrementVersion(@Param("id") Long id);
+
     boolean existsByUserId(Long userId);
 
     Optional<UserProfile> findByUserId(Long userId);
+
+    interface ProfileVersion {
+        Long getId();
+
+        Long getUserId();
+
+        Long getProfileVersion();
+    }
 }
@@ -3,9 +3,11 @@ package com.sakny.user.service;
 import com.sakny.common.exception.BusinessException;
 import com.sakny.common.exception.ProfileErrorCode;
 import com.sakny.user.entity.User;
+import com.sakny.user.event.AccountDeletedEvent;
 import com.sakny.user.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +27,7 @@ public class AccountService {
     private final UserActivityRepository activityRepository;
     private final SavedProfileRepository savedProfileRepository;
     private final VerificationSubmissionRepository verificationSubmissionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public void deleteAccount(Long userId) {
@@ -60,6 +63,7 @@ public class AccountService {
 
         // Delete user
         userRepository.delete(user);
+        eventPublisher.publishEvent(new AccountDeletedEvent(userId));
 
         log.info("Account deleted for user {}", userId);
     }
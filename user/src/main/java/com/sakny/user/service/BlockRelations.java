@@ -0,0 +1,65 @@
+package com.sakny.user.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The block relations of one user: who they blocked and everyone to keep out of their sight, i.e.
+ * users they blocked or who blocked them. Both are kept as sorted primitive arrays; instances are
+ * immutable and shared between requests.
+ */
+public final class BlockRelations {
+
+    static final BlockRelations NONE = new BlockRelations(new long[0], new long[0]);
+
+    private final long[] blocked;
+    private final long[] excluded;
+
+    private BlockRelations(long[] blocked, long[] excluded) {
+        this.blocked = blocked;
+        this.excluded = excluded;
+    }
+
+    static BlockRelations of(List<Long> blockedIds, List<Long> blockerIds) {
+        if (blockedIds.isEmpty() && blockerIds.isEmpty()) {
+            return NONE;
+        }
+        long[] blocked = sortedDistinct(blockedIds.stream().mapToLong(Long::longValue).toArray());
+        long[] excluded = new long[blocked.length + blockerIds.size()];
+        System.arraycopy(blocked, 0, excluded, 0, blocked.length);
+        for (int i = 0; i < blockerIds.size(); i++) {
+            excluded[blocked.length + i] = blockerIds.get(i);
+        }
+        return new BlockRelations(blocked, sortedDistinct(excluded));
+    }
+
+    /** Whether this user blocked the other. */
+    public boolean hasBlocked(long userId) {
+        return Arrays.binarySearch(blocked, userId) >= 0;
+    }
+
+    /** Whether either user blocked the other. */
+    public boolean excludes(long userId) {
+        return Arrays.binarySearch(excluded, userId) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return excluded.length == 0;
+    }
+
+    /** The excluded IDs boxed, for query parameters. */
+    public List<Long> excludedIds() {
+        return Arrays.stream(excluded).boxed().toList();
+    }
+
+    private static long[] sortedDistinct(long[] ids) {
+        Arrays.sort(ids);
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (n == 0 || ids[i] != ids[n - 1]) {
+                ids[n++] = ids[i];
+            }
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+}
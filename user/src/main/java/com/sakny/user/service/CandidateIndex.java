@@ -0,0 +1,417 @@
+package com.sakny.user.service;
+
+import com.sakny.common.model.Gender;
+import com.sakny.common.model.RoommateType;
+import com.sakny.user.config.MatchingProperties;
+import com.sakny.user.entity.UserProfile;
+import com.sakny.user.event.AccountDeletedEvent;
+import com.sakny.user.repository.UserProfileRepository;
+import com.sakny.user.repository.UserProfileRepository.ProfileVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of every complete profile's {@link MatchFeatures}, used to cut the candidate pool
+ * down before scoring.
+ *
+ * <p>Candidates are partitioned by gender and roommate type, so the seeker's gender hard filter and a
+ * requested roommate type only visit matching partitions. Inside a partition candidates are sorted by
+ * {@code budgetMin}: when budget overlap is required, a binary search bounds the candidates starting at
+ * or below the seeker's maximum and only those ending at or above the seeker's minimum are returned.
+ *
+ * <p>The index is built on startup, updated by {@link RecommendationService} as profiles change on
+ * any node, drops deleted accounts once their deletion commits, and is rebuilt in the background once
+ * older than {@code sakny.matching.index-max-age}, which also picks up changes other nodes could not
+ * announce. A change replaces only the partitions holding the user before and
+ * after it; partitions are copied on write and read without locking. Membership and partitions only
+ * change together, under the index's monitor.
+ */
+@Service
+@Slf4j
+public class CandidateIndex {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int GENDERS = Gender.values().length + 1;
+    private static final int ROOMMATE_TYPES = RoommateType.values().length + 1;
+
+    private final UserProfileRepository profileRepository;
+    private final MatchingService matchingService;
+    private final MatchingProperties matchingProperties;
+    private final Counter prunedByGender;
+    private final Counter prunedByRoommateType;
+    private final Counter prunedByBudget;
+
+    private volatile Map<Long, MatchFeatures> members;
+    private volatile Partition[] partitions;
+    private volatile Instant builtAt = Instant.EPOCH;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    public CandidateIndex(UserProfileRepository profileRepository,
+                          MatchingService matchingService,
+                          MatchingProperties matchingProperties,
+                          MeterRegistry meterRegistry) {
+        this.profileRepository = profileRepository;
+        this.matchingService = matchingService;
+        this.matchingProperties = matchingProperties;
+        this.prunedByGender = prunedCounter(meterRegistry, "gender");
+        this.prunedByRoommateType = prunedCounter(meterRegistry, "roommateType");
+        this.prunedByBudget = prunedCounter(meterRegistry, "budget");
+    }
+
+    private static Counter prunedCounter(MeterRegistry meterRegistry, String filter) {
+        return Counter.builder("sakny.matching.index.pruned")
+                .description("Candidates skipped by the candidate index before scoring")
+                .tag("filter", filter)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Candidates the seeker could be matched with, narrowed to the given gender and roommate type when
+     * those are non-null. The seeker may be among them; the returned list is the caller's to modify.
+     */
+    public List<MatchFeatures> candidatesFor(MatchFeatures seeker, Gender gender, RoommateType roommateType) {
+        Partition[] snapshot = snapshot();
+        boolean byBudget = matchingProperties.isBudgetOverlapRequired() && seeker.hasBudget();
+        List<MatchFeatures> result = new ArrayList<>();
+        long total = 0;
+        long afterGender = 0;
+        long afterType = 0;
+
+        for (int g = 0; g < GENDERS; g++) {
+            boolean genderOk = (seeker.roommateGender() == MatchFeatures.NONE || seeker.roommateGender() == g - 1)
+                    && (gender == null || gender.ordinal() == g - 1);
+            for (int t = 0; t < ROOMMATE_TYPES; t++) {
+                Partition partition = snapshot[g * ROOMMATE_TYPES + t];
+                total += partition.size();
+                if (!genderOk) continue;
+                afterGender += partition.size();
+                if (roommateType != null && roommateType.ordinal() != t - 1) continue;
+                afterType += partition.size();
+                partition.collect(seeker, byBudget, result);
+            }
+        }
+
+        prunedByGender.increment(total - afterGender);
+        prunedByRoommateType.increment(afterGender - afterType);
+        prunedByBudget.increment(afterType - result.size());
+        return result;
+    }
+
+    /**
+     * Whether {@link #candidatesFor} would return the candidate for this seeker, ignoring gender (which
+     * scoring already treats as a hard filter) and request filters.
+     */
+    public boolean admits(MatchFeatures seeker, MatchFeatures candidate) {
+        if (!matchingProperties.isBudgetOverlapRequired() || !seeker.hasBudget() || !candidate.hasBudget()) {
+            return true;
+        }
+        return candidate.budgetMin() <= seeker.budgetMax() && candidate.budgetMax() >= seeker.budgetMin();
+    }
+
+    @TransactionalEventListener
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        update(event.userId(), null);
+    }
+
+    /**
+     * Records a profile's current state: {@code features} for a complete profile, or {@code null} to
+     * drop the user from the index.
+     */
+    public void update(Long userId, MatchFeatures features) {
+        members();
+        synchronized (this) {
+            Map<Long, MatchFeatures> current = members;
+            MatchFeatures previous = features != null ? current.put(userId, features) : current.remove(userId);
+            if (rebuildLock.isLocked()) {
+                changedDuringRebuild.add(userId);
+            }
+            Partition[] snapshot = partitions;
+            if (snapshot != null) {
+                Partition[] next = snapshot.clone();
+                if (previous != null) {
+                    int i = partitionOf(previous);
+                    next[i] = next[i].without(userId);
+                }
+                if (features != null) {
+                    int i = partitionOf(features);
+                    next[i] = next[i].with(features);
+                }
+                partitions = next;
+            }
+        }
+        if (builtAt.plus(matchingProperties.getIndexMaxAge()).isBefore(Instant.now())) {
+            rebuildAsync();
+        }
+    }
+
+    private Map<Long, MatchFeatures> members() {
+        Map<Long, MatchFeatures> current = members;
+        if (current == null) {
+            rebuildLock.lock();
+            try {
+                if (members == null) {
+                    load();
+                }
+            } finally {
+                rebuildLock.unlock();
+            }
+            current = members;
+        }
+        return current;
+    }
+
+    private Partition[] snapshot() {
+        Partition[] snapshot = partitions;
+        if (snapshot == null) {
+            members();
+            synchronized (this) {
+                snapshot = partitions;
+                if (snapshot == null) {
+                    snapshot = partition(members);
+                    partitions = snapshot;
+                }
+            }
+        }
+        if (builtAt.plus(matchingProperties.getIndexMaxAge()).isBefore(Instant.now())) {
+            rebuildAsync();
+        }
+        return snapshot;
+    }
+
+    private void rebuildAsync() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            Thread thread = new Thread(() -> {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.warn("Candidate index rebuild failed: {}", e.getMessage());
+                } finally {
+                    rebuildScheduled.set(false);
+                }
+            }, "candidate-index-rebuild");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Reloads the index from the database, reusing cached features for unchanged profiles.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            load();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        Map<Long, MatchFeatures> loaded = new ConcurrentHashMap<>();
+        List<Long> staleUserIds = new ArrayList<>();
+        for (ProfileVersion version : profileRepository.findCompleteProfileVersions()) {
+            MatchFeatures features = matchingService.cachedFeatures(version.getId(), version.getProfileVersion());
+            if (features != null) {
+                loaded.put(version.getUserId(), features);
+            } else {
+                staleUserIds.add(version.getUserId());
+            }
+        }
+        for (int i = 0; i < staleUserIds.size(); i += BATCH_SIZE) {
+            List<Long> batch = staleUserIds.subList(i, Math.min(i + BATCH_SIZE, staleUserIds.size()));
+            for (UserProfile profile : profileRepository.findAllByUserIdInWithDetails(batch)) {
+                loaded.put(profile.getUser().getId(), matchingService.refreshFeatures(profile));
+            }
+        }
+
+        synchronized (this) {
+            members = loaded;
+            partitions = null;
+        }
+        builtAt = Instant.now();
+        reapplyChangedDuringRebuild();
+        log.info("Candidate index rebuilt with {} profiles in {} ms", loaded.size(), System.currentTimeMillis() - start);
+    }
+
+    // Changes that raced with a rebuild may have been read before they committed; reload them
+    private void reapplyChangedDuringRebuild() {
+        if (changedDuringRebuild.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = new ArrayList<>(changedDuringRebuild);
+        changedDuringRebuild.removeAll(userIds);
+        Map<Long, MatchFeatures> reloaded = new HashMap<>();
+        for (UserProfile profile : profileRepository.findAllByUserIdInWithDetails(userIds)) {
+            if (Boolean.TRUE.equals(profile.getIsComplete())) {
+                reloaded.put(profile.getUser().getId(), matchingService.refreshFeatures(profile));
+            }
+        }
+        synchronized (this) {
+            Map<Long, MatchFeatures> current = members;
+            userIds.forEach(current::remove);
+            current.putAll(reloaded);
+            partitions = null;
+        }
+    }
+
+    private static int partitionOf(MatchFeatures f) {
+        return (f.gender() + 1) * ROOMMATE_TYPES + f.roommateType() + 1;
+    }
+
+    private static Partition[] partition(Map<Long, MatchFeatures> members) {
+        List<List<MatchFeatures>> groups = new ArrayList<>(GENDERS * ROOMMATE_TYPES);
+        for (int i = 0; i < GENDERS * ROOMMATE_TYPES; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (MatchFeatures f : members.values()) {
+            groups.get(partitionOf(f)).add(f);
+        }
+        Partition[] result = new Partition[groups.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Partition.of(groups.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Candidates of one (gender, roommate type) pair: those with a budget sorted by {@code budgetMin}
+     * with parallel min/max arrays, and those without a budget, which are never pruned by it.
+     */
+    private record Partition(int[] budgetMins, int[] budgetMaxs, MatchFeatures[] byBudgetMin,
+                             MatchFeatures[] withoutBudget) {
+
+        static Partition of(List<MatchFeatures> candidates) {
+            MatchFeatures[] withBudget = candidates.stream()
+                    .filter(MatchFeatures::hasBudget)
+                    .sorted(Comparator.comparingInt(MatchFeatures::budgetMin))
+                    .toArray(MatchFeatures[]::new);
+            MatchFeatures[] withoutBudget = candidates.stream()
+                    .filter(f -> !f.hasBudget())
+                    .toArray(MatchFeatures[]::new);
+            int[] mins = new int[withBudget.length];
+            int[] maxs = new int[withBudget.length];
+            for (int i = 0; i < withBudget.length; i++) {
+                mins[i] = withBudget[i].budgetMin();
+                maxs[i] = withBudget[i].budgetMax();
+            }
+            return new Partition(mins, maxs, withBudget, withoutBudget);
+        }
+
+        int size() {
+            return byBudgetMin.length + withoutBudget.length;
+        }
+
+        /** This partition with the candidate added, keeping the budget order. */
+        Partition with(MatchFeatures f) {
+            if (!f.hasBudget()) {
+                MatchFeatures[] without = Arrays.copyOf(withoutBudget, withoutBudget.length + 1);
+                without[withoutBudget.length] = f;
+                return new Partition(budgetMins, budgetMaxs, byBudgetMin, without);
+            }
+            int at = upperBound(budgetMins, f.budgetMin());
+            return new Partition(insert(budgetMins, at, f.budgetMin()), insert(budgetMaxs, at, f.budgetMax()),
+                    insert(byBudgetMin, at, f), withoutBudget);
+        }
+
+        /** This partition without the user, or itself if the user is not in it. */
+        Partition without(long userId) {
+            for (int i = 0; i < withoutBudget.length; i++) {
+                if (withoutBudget[i].userId() == userId) {
+                    return new Partition(budgetMins, budgetMaxs, byBudgetMin, remove(withoutBudget, i));
+                }
+            }
+            for (int i = 0; i < byBudgetMin.length; i++) {
+                if (byBudgetMin[i].userId() == userId) {
+                    return new Partition(remove(budgetMins, i), remove(budgetMaxs, i), remove(byBudgetMin, i),
+                            withoutBudget);
+                }
+            }
+            return this;
+        }
+
+        void collect(MatchFeatures seeker, boolean byBudget, List<MatchFeatures> out) {
+            out.addAll(Arrays.asList(withoutBudget));
+            if (!byBudget) {
+                out.addAll(Arrays.asList(byBudgetMin));
+                return;
+            }
+            // Candidates starting above the seeker's maximum cannot overlap
+            int end = upperBound(budgetMins, seeker.budgetMax());
+            for (int i = 0; i < end; i++) {
+                if (budgetMaxs[i] >= seeker.budgetMin()) {
+                    out.add(byBudgetMin[i]);
+                }
+            }
+        }
+
+        private static int[] insert(int[] array, int at, int value) {
+            int[] result = new int[array.length + 1];
+            System.arraycopy(array, 0, result, 0, at);
+            result[at] = value;
+            System.arraycopy(array, at, result, at + 1, array.length - at);
+            return result;
+        }
+
+        private static MatchFeatures[] insert(MatchFeatures[] array, int at, MatchFeatures value) {
+            MatchFeatures[] result = new MatchFeatures[array.length + 1];
+            System.arraycopy(array, 0, result, 0, at);
+            result[at] = value;
+            System.arraycopy(array, at, result, at + 1, array.length - at);
+            return result;
+        }
+
+        private static int[] remove(int[] array, int at) {
+            int[] result = new int[array.length - 1];
+            System.arraycopy(array, 0, result, 0, at);
+            System.arraycopy(array, at + 1, result, at, array.length - at - 1);
+            return result;
+        }
+
+        private static MatchFeatures[] remove(MatchFeatures[] array, int at) {
+            MatchFeatures[] result = new MatchFeatures[array.length - 1];
+            System.arraycopy(array, 0, result, 0, at);
+            System.arraycopy(array, at + 1, result, at, array.length - at - 1);
+            return result;
+        }
+
+        // First index whose value is greater than key
+        private static int upperBound(int[] sorted, int key) {
+            int lo = 0;
+            int hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] <= key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.sakny.user.service;
+
+import com.sakny.common.config.CacheConfig;
+import com.sakny.common.dto.MatchExplanationResponse;
+import com.sakny.common.dto.MatchScoreResponse;
+import com.sakny.user.entity.UserProfile;
+import com.sakny.user.service.MatchingService.MatchScoreResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+/**
+ * Builds the scored part of a {@link MatchScoreResponse} (score, breakdown, strengths and conflicts)
+ * for a pair of profiles. The candidate's profile is left for the caller to attach. The explanation
+ * and discussion topics are rendered separately by {@link #explain}, only when a client asks for them.
+ */
+@Service
+@RequiredArgsConstructor
+public class CompatibilityService {
+
+    private final MatchingService matchingService;
+    private final MatchExplanationService matchExplanationService;
+
+    /**
+     * Same as {@link #compute}, cached per pair of profile versions. A profile edit bumps its version,
+     * so entries for the old version are simply never read again.
+     */
+    @Cacheable(value = CacheConfig.MATCH_SCORES,
+            key = "{#seeker.user.id, #seeker.profileVersion, #candidate.user.id, #candidate.profileVersion}")
+    public MatchScoreResponse cachedScore(UserProfile seeker, UserProfile candidate) {
+        return compute(seeker, candidate);
+    }
+
+    public MatchScoreResponse compute(UserProfile seeker, UserProfile candidate) {
+        MatchScoreResult result = matchingService.computeMatchScore(seeker, candidate);
+
+        return MatchScoreResponse.builder()
+                .userId(candidate.getUser().getId())
+                .score(result.score())
+                .breakdown(result.breakdown())
+                .strengths(result.strengths())
+                .conflicts(result.conflicts())
+                .build();
+    }
+
+    /**
+     * Renders the explanation and discussion topics of an already scored pair.
+     */
+    public MatchExplanationResponse explain(MatchScoreResponse scored, UserProfile candidate) {
+        return MatchExplanationResponse.builder()
+                .userId(scored.getUserId())
+                .score(scored.getScore())
+                .explanation(matchExplanationService.generateExplanation(
+                        scored.getScore(), scored.getBreakdown(), candidate.getUser().getName()))
+                .discussionTopics(matchExplanationService.generateDiscussionTopics(scored.getBreakdown()))
+                .build();
+    }
+}
@@ -4,115 +4,166 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 
+/**
+ * Renders the human-readable explanation and discussion topics of a match from its score breakdown.
+ *
+ * <p>All phrases are constants and the topic lists are precomputed for every combination of weak
+ * factors, so rendering costs one {@link StringBuilder} per explanation and nothing per topic list.
+ * Explanations are only rendered on demand (single compatibility lookups), never for whole listings.
+ */
 @Service
 public class MatchExplanationService {
 
-    public String generateExplanation(double score, Map<String, Double> breakdown, String candidateName) {
-        List<String> positives = new ArrayList<>();
-        List<String> negatives = new ArrayList<>();
+    private static final String EXCELLENT = "Excellent match! ";
+    private static final String GOOD = "Good compatibility. ";
+    private static final String SOME = "Some compatibility found. ";
 
-        for (Map.Entry<String, Double> entry : breakdown.entrySet()) {
-            String factor = entry.getKey();
-            double value = entry.getValue();
-            categorize(factor, value, candidateName, positives, negatives);
-        }
+    private static final int MAX_POSITIVES = 3;
+    private static final int MAX_NEGATIVES = 2;
+    private static final int MAX_TOPICS = 5;
 
-        StringBuilder sb = new StringBuilder();
+    private static final String[] CONDITIONAL_TOPICS = {
+            "Discuss exact budget split and what's included (utilities, internet, cleaning)",
+            "Clarify smoking rules: indoor/outdoor, balcony, frequency",
+            "Talk about quiet hours, noise tolerance, and weekend routines",
+            "Agree on cleaning responsibilities and standards for shared spaces",
+            "Discuss pet rules: feeding, noise, allergies, shared space access",
+            "You prefer different areas — discuss which neighborhoods work for both"
+    };
+
+    // Always included, after the conditional ones
+    private static final String[] GENERAL_TOPICS = {
+            "Set expectations for guests and overnight visitors",
+            "Agree on shared expenses and how to split bills"
+    };
+
+    // Topic list per bitmask of raised CONDITIONAL_TOPICS
+    private static final List<List<String>> TOPICS_BY_MASK = precomputeTopics();
+
+    public String generateExplanation(double score, Map<String, Double> breakdown, String candidateName) {
+        StringBuilder sb = new StringBuilder(192);
 
         if (score >= 80) {
-            sb.append("Excellent match! ");
+            sb.append(EXCELLENT);
         } else if (score >= 60) {
-            sb.append("Good compatibility. ");
+            sb.append(GOOD);
         } else {
-            sb.append("Some compatibility found. ");
+            sb.append(SOME);
         }
 
-        if (!positives.isEmpty()) {
-            sb.append(String.join(". ", positives.subList(0, Math.min(3, positives.size()))));
+        int positives = 0;
+        boolean hasNegatives = false;
+        for (Map.Entry<String, Double> entry : breakdown.entrySet()) {
+            Factor factor = Factor.of(entry.getKey());
+            if (factor == null) continue;
+            double value = entry.getValue();
+            if (factor.isPositive(value)) {
+                if (positives < MAX_POSITIVES) {
+                    if (positives > 0) sb.append(". ");
+                    sb.append(factor.positive);
+                }
+                positives++;
+            } else if (factor.isNegative(value)) {
+                hasNegatives = true;
+            }
+        }
+        if (positives > 0) {
             sb.append(". ");
         }
 
-        if (!negatives.isEmpty() && score < 85) {
+        if (hasNegatives && score < 85) {
             sb.append("However, ");
-            sb.append(String.join(", and ", negatives.subList(0, Math.min(2, negatives.size()))));
-            sb.append(".");
+            int negatives = 0;
+            for (Map.Entry<String, Double> entry : breakdown.entrySet()) {
+                Factor factor = Factor.of(entry.getKey());
+                if (factor == null || !factor.isNegative(entry.getValue())) continue;
+                if (negatives > 0) sb.append(", and ");
+                sb.append(factor.negative);
+                if (++negatives == MAX_NEGATIVES) break;
+            }
+            sb.append('.');
         }
 
-        return sb.toString().trim();
+        int end = sb.length();
+        while (end > 0 && sb.charAt(end - 1) == ' ') end--;
+        sb.setLength(end);
+        return sb.toString();
     }
 
     public List<String> generateDiscussionTopics(Map<String, Double> breakdown) {
-        List<String> topics = new ArrayList<>();
-
-        Double budget = breakdown.get("budget");
-        if (budget != null && budget < 70) {
-            topics.add("Discuss exact budget split and what's included (utilities, internet, cleaning)");
-        }
+        int mask = 0;
+        if (below(breakdown.get("budget"), 70)) mask |= 1;
+        if (below(breakdown.get("smoking"), 80)) mask |= 1 << 1;
+        if (below(breakdown.get("sleep"), 80)) mask |= 1 << 2;
+        if (below(breakdown.get("cleanliness"), 70)) mask |= 1 << 3;
+        if (below(breakdown.get("pets"), 80)) mask |= 1 << 4;
+        if (below(breakdown.get("location"), 50)) mask |= 1 << 5;
+        return TOPICS_BY_MASK.get(mask);
+    }
 
-        Double smoking = breakdown.get("smoking");
-        if (smoking != null && smoking < 80) {
-            topics.add("Clarify smoking rules: indoor/outdoor, balcony, frequency");
-        }
+    private static boolean below(Double value, double threshold) {
+        return value != null && value < threshold;
+    }
 
-        Double sleep = breakdown.get("sleep");
-        if (sleep != null && sleep < 80) {
-            topics.add("Talk about quiet hours, noise tolerance, and weekend routines");
+    private static List<List<String>> precomputeTopics() {
+        List<List<String>> byMask = new ArrayList<>(1 << CONDITIONAL_TOPICS.length);
+        for (int mask = 0; mask < 1 << CONDITIONAL_TOPICS.length; mask++) {
+            List<String> topics = new ArrayList<>();
+            for (int i = 0; i < CONDITIONAL_TOPICS.length; i++) {
+                if ((mask & (1 << i)) != 0) topics.add(CONDITIONAL_TOPICS[i]);
+            }
+            topics.addAll(Arrays.asList(GENERAL_TOPICS));
+            byMask.add(List.copyOf(topics.subList(0, Math.min(MAX_TOPICS, topics.size()))));
         }
+        return List.copyOf(byMask);
+    }
 
-        Double cleanliness = breakdown.get("cleanliness");
-        if (cleanliness != null && cleanliness < 70) {
-            topics.add("Agree on cleaning responsibilities and standards for shared spaces");
+    /**
+     * Phrases and thresholds per breakdown factor. A factor without a negative phrase is never
+     * reported as a conflict.
+     */
+    private enum Factor {
+        BUDGET(80, "Your budgets align well", 40, "your budget ranges don't overlap much"),
+        GENDER(100, "Gender preference matches", Double.NEGATIVE_INFINITY, null),
+        SMOKING(80, "Compatible smoking preferences", 40, "smoking preferences may conflict"),
+        LOCATION(80, "You both prefer similar areas", 30, "you prefer different locations"),
+        SLEEP(80, "Similar sleep schedules", 40, "different sleep patterns"),
+        CLEANLINESS(80, "Similar cleanliness standards", 50, "different cleanliness expectations"),
+        PETS(80, "Pet compatibility is good", 50, "pet preferences differ"),
+        PERSONALITY(70, "You share personality traits", Double.NEGATIVE_INFINITY, null);
+
+        private final double positiveFrom;
+        private final String positive;
+        private final double negativeBelow;
+        private final String negative;
+
+        Factor(double positiveFrom, String positive, double negativeBelow, String negative) {
+            this.positiveFrom = positiveFrom;
+            this.positive = positive;
+            this.negativeBelow = negativeBelow;
+            this.negative = negative;
         }
 
-        Double pets = breakdown.get("pets");
-        if (pets != null && pets < 80) {
-            topics.add("Discuss pet rules: feeding, noise, allergies, shared space access");
+        boolean isPositive(double value) {
+            return value >= positiveFrom;
         }
 
-        Double location = breakdown.get("location");
-        if (location != null && location < 50) {
-            topics.add("You prefer different areas — discuss which neighborhoods work for both");
+        boolean isNegative(double value) {
+            return value < negativeBelow;
         }
 
-        // Always include these general ones
-        topics.add("Set expectations for guests and overnight visitors");
-        topics.add("Agree on shared expenses and how to split bills");
-
-        return topics.subList(0, Math.min(5, topics.size()));
-    }
-
-    private void categorize(String factor, double value, String name, List<String> positives, List<String> negatives) {
-        switch (factor) {
-            case "budget" -> {
-                if (value >= 80) positives.add("Your budgets align well");
-                else if (value < 40) negatives.add("your budget ranges don't overlap much");
-            }
-            case "gender" -> {
-                if (value >= 100) positives.add("Gender preference matches");
-            }
-            case "smoking" -> {
-                if (value >= 80) positives.add("Compatible smoking preferences");
-                else if (value < 40) negatives.add("smoking preferences may conflict");
-            }
-            case "location" -> {
-                if (value >= 80) positives.add("You both prefer similar areas");
-                else if (value < 30) negatives.add("you prefer different locations");
-            }
-            case "sleep" -> {
-                if (value >= 80) positives.add("Similar sleep schedules");
-                else if (value < 40) negatives.add("different sleep patterns");
-            }
-            case "cleanliness" -> {
-                if (value >= 80) positives.add("Similar cleanliness standards");
-                else if (value < 50) negatives.add("different cleanliness expectations");
-            }
-            case "pets" -> {
-                if (value >= 80) positives.add("Pet compatibility is good");
-                else if (value < 50) negatives.add("pet preferences differ");
-            }
-            case "personality" -> {
-                if (value >= 70) positives.add("You share personality traits");
-            }
+        static Factor of(String key) {
+            return switch (key) {
+                case "budget" -> BUDGET;
+                case "gender" -> GENDER;
+                case "smoking" -> SMOKING;
+                case "location" -> LOCATION;
+                case "sleep" -> SLEEP;
+                case "cleanliness" -> CLEANLINESS;
+                case "pets" -> PETS;
+                case "personality" -> PERSONALITY;
+                default -> null;
+            };
         }
     }
 }
@@ -0,0 +1,47 @@
+package com.sakny.user.service;
+
+/**
+ * Compact, precomputed view of the profile fields used by {@link MatchingService}.
+ *
+ * <p>Enums are stored as ordinals ({@link #NONE} when unset), budgets as plain ints, personality
+ * traits as a bitset over {@link TraitDictionary} ids and preferred areas as a sorted, duplicate-free
+ * array of packed {@code (governorateId << 32 | cityId)} values. Scoring two instances needs no
+ * parsing and no allocation. Instances are immutable once built; the arrays must not be modified.
+ */
+public record MatchFeatures(
+        long userId,
+        int gender,
+        int roommateGender,
+        int roommateType,
+        int smoking,
+        int pets,
+        int sleepSchedule,
+        int prefSmoking,
+        int prefPets,
+        int prefSleepSchedule,
+        int cleanliness,
+        boolean hasBudget,
+        int budgetMin,
+        int budgetMax,
+        long[] traits,
+        long[] areas
+) {
+
+    /** Marker for an unset enum or cleanliness value. */
+    public static final int NONE = -1;
+
+    static int ordinal(Enum<?> value) {
+        return value != null ? value.ordinal() : NONE;
+    }
+
+    static long packArea(long governorateId, long cityId) {
+        return (governorateId << 32) | (cityId & 0xFFFFFFFFL);
+    }
+
+    boolean hasTraits() {
+        for (long word : traits) {
+            if (word != 0L) return true;
+        }
+        return false;
+    }
+}
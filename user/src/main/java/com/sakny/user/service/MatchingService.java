@@ -1,15 +1,19 @@
 package com.sakny.user.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.sakny.common.model.*;
+import com.sakny.user.config.MatchingProperties;
 import com.sakny.user.entity.PreferredArea;
 import com.sakny.user.entity.UserProfile;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sakny.user.mapper.PersonalityTraitCodec;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 @Service
 @Slf4j
@@ -24,9 +28,62 @@ public class MatchingService {
     private static final double WEIGHT_PETS = 0.05;
     private static final double WEIGHT_PERSONALITY = 0.05;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    static final Comparator<ScoredCandidate> RANK_ORDER = Comparator
+            .comparingDouble(ScoredCandidate::score).reversed()
+            .thenComparingLong(ScoredCandidate::userId);
+
+    private final MatchingProperties matchingProperties;
+    private final TraitDictionary traitDictionary;
+    private final PersonalityTraitCodec traitCodec;
+    private final ForkJoinPool scoringPool;
+
+    // Features per profile id, reused until the profile's version changes; least recently used first out
+    private final Cache<Long, CachedFeatures> featureCache;
+
+    public MatchingService(MatchingProperties matchingProperties, TraitDictionary traitDictionary,
+                           PersonalityTraitCodec traitCodec) {
+        this.matchingProperties = matchingProperties;
+        this.traitDictionary = traitDictionary;
+        this.traitCodec = traitCodec;
+        this.featureCache = Caffeine.newBuilder()
+                .maximumSize(matchingProperties.getFeatureCacheSize())
+                .build();
+        this.scoringPool = matchingProperties.getParallelism() > 1
+                ? new ForkJoinPool(matchingProperties.getParallelism())
+                : null;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scoringPool != null) {
+            scoringPool.shutdown();
+        }
+    }
 
     public MatchScoreResult computeMatchScore(UserProfile seeker, UserProfile candidate) {
+        return computeMatchScoreDetails(featuresOf(seeker), featuresOf(candidate));
+    }
+
+    /**
+     * Scores a pair of precomputed profiles without allocating. Returns the same value as
+     * {@link #computeMatchScoreDetails(MatchFeatures, MatchFeatures)}, minus the breakdown.
+     */
+    public double computeMatchScore(MatchFeatures seeker, MatchFeatures candidate) {
+        double genderScore = computeGenderScore(seeker, candidate);
+        if (genderScore == 0.0) {
+            return 0.0;
+        }
+        return weightedScore(genderScore,
+                computeBudgetScore(seeker, candidate),
+                computeSmokingScore(seeker, candidate),
+                computeLocationScore(seeker, candidate),
+                computeSleepScore(seeker, candidate),
+                computeCleanlinessScore(seeker, candidate),
+                computePetScore(seeker, candidate),
+                computePersonalityScore(seeker, candidate));
+    }
+
+    public MatchScoreResult computeMatchScoreDetails(MatchFeatures seeker, MatchFeatures candidate) {
         Map<String, Double> breakdown = new LinkedHashMap<>();
         List<String> strengths = new ArrayList<>();
         List<String> conflicts = new ArrayList<>();
@@ -102,7 +159,190 @@ public class MatchingService {
             strengths.add("Shared personality traits");
         }
 
-        // Weighted total
+        double finalScore = weightedScore(genderScore, budgetScore, smokingScore, locationScore,
+                sleepScore, cleanlinessScore, petScore, personalityScore);
+
+        return new MatchScoreResult(finalScore, breakdown, strengths, conflicts);
+    }
+
+    /**
+     * Ranks candidates against the seeker and returns the best {@code k}, ordered by score
+     * (descending) then user id (ascending). Candidates failing the gender hard filter are dropped
+     * and not counted as eligible; once {@code k} matches are held, a candidate is abandoned as soon
+     * as its partial score plus the remaining weights can no longer beat the weakest of them.
+     */
+    public TopMatches topMatches(MatchFeatures seeker, Collection<MatchFeatures> candidates, int k) {
+        if (k <= 0) {
+            return new TopMatches(List.of(), 0);
+        }
+        if (scoringPool == null || candidates.size() < matchingProperties.getParallelThreshold()) {
+            return rankSequentially(seeker, candidates, k);
+        }
+        List<MatchFeatures> list = candidates instanceof List<MatchFeatures> l ? l : new ArrayList<>(candidates);
+        int leafSize = Math.max(1024, list.size() / (matchingProperties.getParallelism() * 4) + 1);
+        return scoringPool.invoke(new RankTask(seeker, list, k, leafSize));
+    }
+
+    private TopMatches rankSequentially(MatchFeatures seeker, Collection<MatchFeatures> candidates, int k) {
+        PriorityQueue<ScoredCandidate> heap = new PriorityQueue<>(k + 1, RANK_ORDER.reversed());
+        int eligible = 0;
+
+        for (MatchFeatures candidate : candidates) {
+            double genderScore = computeGenderScore(seeker, candidate);
+            if (genderScore == 0.0) {
+                continue;
+            }
+            eligible++;
+            double floor = heap.size() == k ? heap.peek().score() : -1.0;
+
+            double budgetScore = computeBudgetScore(seeker, candidate);
+            double smokingScore = computeSmokingScore(seeker, candidate);
+            double partial = genderScore * WEIGHT_GENDER + budgetScore * WEIGHT_BUDGET + smokingScore * WEIGHT_SMOKING;
+            if (upperBound(partial, WEIGHT_LOCATION + WEIGHT_SLEEP + WEIGHT_CLEANLINESS + WEIGHT_PETS + WEIGHT_PERSONALITY) < floor) {
+                continue;
+            }
+
+            double locationScore = computeLocationScore(seeker, candidate);
+            double sleepScore = computeSleepScore(seeker, candidate);
+            double cleanlinessScore = computeCleanlinessScore(seeker, candidate);
+            double petScore = computePetScore(seeker, candidate);
+            partial += locationScore * WEIGHT_LOCATION + sleepScore * WEIGHT_SLEEP
+                    + cleanlinessScore * WEIGHT_CLEANLINESS + petScore * WEIGHT_PETS;
+            if (upperBound(partial, WEIGHT_PERSONALITY) < floor) {
+                continue;
+            }
+
+            double score = weightedScore(genderScore, budgetScore, smokingScore, locationScore,
+                    sleepScore, cleanlinessScore, petScore, computePersonalityScore(seeker, candidate));
+            ScoredCandidate scored = new ScoredCandidate(candidate.userId(), score);
+            if (heap.size() < k) {
+                heap.offer(scored);
+            } else if (RANK_ORDER.compare(scored, heap.peek()) < 0) {
+                heap.poll();
+                heap.offer(scored);
+            }
+        }
+
+        List<ScoredCandidate> ranked = new ArrayList<>(heap);
+        ranked.sort(RANK_ORDER);
+        return new TopMatches(ranked, eligible);
+    }
+
+    // Each half keeps its own top k; the global top k is contained in their union
+    private static TopMatches merge(TopMatches left, TopMatches right, int k) {
+        List<ScoredCandidate> merged = new ArrayList<>(left.matches().size() + right.matches().size());
+        merged.addAll(left.matches());
+        merged.addAll(right.matches());
+        merged.sort(RANK_ORDER);
+        return new TopMatches(merged.subList(0, Math.min(k, merged.size())), left.eligible() + right.eligible());
+    }
+
+    private final class RankTask extends RecursiveTask<TopMatches> {
+
+        private final MatchFeatures seeker;
+        private final List<MatchFeatures> candidates;
+        private final int k;
+        private final int leafSize;
+
+        private RankTask(MatchFeatures seeker, List<MatchFeatures> candidates, int k, int leafSize) {
+            this.seeker = seeker;
+            this.candidates = candidates;
+            this.k = k;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected TopMatches compute() {
+            if (candidates.size() <= leafSize) {
+                return rankSequentially(seeker, candidates, k);
+            }
+            int mid = candidates.size() / 2;
+            RankTask left = new RankTask(seeker, candidates.subList(0, mid), k, leafSize);
+            RankTask right = new RankTask(seeker, candidates.subList(mid, candidates.size()), k, leafSize);
+            left.fork();
+            TopMatches rightResult = right.compute();
+            return merge(left.join(), rightResult, k);
+        }
+    }
+
+    // Best possible rounded score given the weighted sum so far and the weight still unscored
+    private static double upperBound(double partial, double remainingWeight) {
+        return Math.round((partial + remainingWeight + 1e-9) * 1000.0) / 10.0;
+    }
+
+    // ===== Features =====
+
+    /**
+     * Returns the cached features for a profile, rebuilding them if the profile changed since they
+     * were computed. The profile's preferred areas (with governorate and city) must be loaded.
+     */
+    public MatchFeatures featuresOf(UserProfile profile) {
+        if (profile.getId() == null) {
+            return buildFeatures(profile);
+        }
+        CachedFeatures cached = featureCache.getIfPresent(profile.getId());
+        if (cached != null && Objects.equals(cached.version(), profile.getProfileVersion())) {
+            return cached.features();
+        }
+        return refreshFeatures(profile);
+    }
+
+    /**
+     * Returns the cached features for a profile id if they were built from the given version of the
+     * profile, or {@code null} if they are missing or stale.
+     */
+    public MatchFeatures cachedFeatures(Long profileId, Long profileVersion) {
+        CachedFeatures cached = featureCache.getIfPresent(profileId);
+        return cached != null && Objects.equals(cached.version(), profileVersion) ? cached.features() : null;
+    }
+
+    /**
+     * Rebuilds and caches the features of a profile that has just been saved.
+     */
+    public MatchFeatures refreshFeatures(UserProfile profile) {
+        MatchFeatures features = buildFeatures(profile);
+        if (profile.getId() != null) {
+            featureCache.put(profile.getId(), new CachedFeatures(profile.getProfileVersion(), features));
+        }
+        return features;
+    }
+
+    private MatchFeatures buildFeatures(UserProfile p) {
+        return new MatchFeatures(
+                p.getUser() != null && p.getUser().getId() != null ? p.getUser().getId() : 0L,
+                MatchFeatures.ordinal(p.getGender()),
+                MatchFeatures.ordinal(p.getRoommateGender()),
+                MatchFeatures.ordinal(p.getRoommateType()),
+                MatchFeatures.ordinal(p.getSmoking()),
+                MatchFeatures.ordinal(p.getPets()),
+                MatchFeatures.ordinal(p.getSleepSchedule()),
+                MatchFeatures.ordinal(p.getPrefSmoking()),
+                MatchFeatures.ordinal(p.getPrefPets()),
+                MatchFeatures.ordinal(p.getPrefSleepSchedule()),
+                p.getCleanliness() != null ? p.getCleanliness() : MatchFeatures.NONE,
+                p.getBudgetMin() != null && p.getBudgetMax() != null,
+                p.getBudgetMin() != null ? p.getBudgetMin() : 0,
+                p.getBudgetMax() != null ? p.getBudgetMax() : 0,
+                traitDictionary.toBits(parsePersonalityTraits(p.getPersonalityTraits())),
+                packAreas(p.getPreferredAreas()));
+    }
+
+    private long[] packAreas(List<PreferredArea> areas) {
+        if (areas == null || areas.isEmpty()) {
+            return new long[0];
+        }
+        return areas.stream()
+                .mapToLong(a -> MatchFeatures.packArea(a.getGovernorate().getId(), a.getCity().getId()))
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    // ===== Factor scores =====
+
+    private static double weightedScore(double genderScore, double budgetScore, double smokingScore,
+                                        double locationScore, double sleepScore, double cleanlinessScore,
+                                        double petScore, double personalityScore) {
         double totalScore = (genderScore * WEIGHT_GENDER)
                 + (budgetScore * WEIGHT_BUDGET)
                 + (smokingScore * WEIGHT_SMOKING)
@@ -112,34 +352,28 @@ public class MatchingService {
                 + (petScore * WEIGHT_PETS)
                 + (personalityScore * WEIGHT_PERSONALITY);
 
-        double finalScore = Math.round(totalScore * 1000.0) / 10.0; // scale to 0-100 with 1 decimal
-
-        return new MatchScoreResult(finalScore, breakdown, strengths, conflicts);
+        return Math.round(totalScore * 1000.0) / 10.0; // scale to 0-100 with 1 decimal
     }
 
-    private double computeGenderScore(UserProfile seeker, UserProfile candidate) {
-        Gender seekerPref = seeker.getRoommateGender();
-        Gender candidateGender = candidate.getGender();
-
+    private double computeGenderScore(MatchFeatures seeker, MatchFeatures candidate) {
         // If seeker has no preference on roommate gender (null means any)
-        if (seekerPref == null) {
+        if (seeker.roommateGender() == MatchFeatures.NONE) {
             return 1.0;
         }
 
         // Check if candidate gender matches seeker's roommate gender preference
-        return seekerPref.equals(candidateGender) ? 1.0 : 0.0;
+        return seeker.roommateGender() == candidate.gender() ? 1.0 : 0.0;
     }
 
-    private double computeBudgetScore(UserProfile seeker, UserProfile candidate) {
-        if (seeker.getBudgetMin() == null || seeker.getBudgetMax() == null
-                || candidate.getBudgetMin() == null || candidate.getBudgetMax() == null) {
+    private double computeBudgetScore(MatchFeatures seeker, MatchFeatures candidate) {
+        if (!seeker.hasBudget() || !candidate.hasBudget()) {
             return 0.5; // unknown, neutral
         }
 
-        double sMin = seeker.getBudgetMin();
-        double sMax = seeker.getBudgetMax();
-        double cMin = candidate.getBudgetMin();
-        double cMax = candidate.getBudgetMax();
+        double sMin = seeker.budgetMin();
+        double sMax = seeker.budgetMax();
+        double cMin = candidate.budgetMin();
+        double cMax = candidate.budgetMax();
 
         // IoU: intersection over union
         double intersectionMin = Math.max(sMin, cMin);
@@ -157,142 +391,113 @@ public class MatchingService {
         return intersection / union;
     }
 
-    private double computeSmokingScore(UserProfile seeker, UserProfile candidate) {
-        SmokingPreference seekerPref = seeker.getPrefSmoking();
-        SmokingStatus candidateSmoking = candidate.getSmoking();
-
-        if (seekerPref == null || candidateSmoking == null) {
+    private double computeSmokingScore(MatchFeatures seeker, MatchFeatures candidate) {
+        if (seeker.prefSmoking() == MatchFeatures.NONE || candidate.smoking() == MatchFeatures.NONE) {
             return 1.0; // no preference = compatible
         }
 
-        switch (seekerPref) {
-            case DONT_MIND:
-                return 1.0;
-            case NON_SMOKER_ONLY:
-                if (candidateSmoking == SmokingStatus.NON_SMOKER) {
-                    return 1.0;
-                } else if (candidateSmoking == SmokingStatus.SOMETIMES) {
-                    return 0.3;
-                } else {
-                    return 0.0;
-                }
-            default:
+        if (seeker.prefSmoking() == SmokingPreference.NON_SMOKER_ONLY.ordinal()) {
+            if (candidate.smoking() == SmokingStatus.NON_SMOKER.ordinal()) {
                 return 1.0;
+            } else if (candidate.smoking() == SmokingStatus.SOMETIMES.ordinal()) {
+                return 0.3;
+            } else {
+                return 0.0;
+            }
         }
+        return 1.0;
     }
 
-    private double computeLocationScore(UserProfile seeker, UserProfile candidate) {
-        List<PreferredArea> seekerAreas = seeker.getPreferredAreas();
-        List<PreferredArea> candidateAreas = candidate.getPreferredAreas();
+    private double computeLocationScore(MatchFeatures seeker, MatchFeatures candidate) {
+        long[] seekerAreas = seeker.areas();
+        long[] candidateAreas = candidate.areas();
 
-        if (seekerAreas == null || seekerAreas.isEmpty()
-                || candidateAreas == null || candidateAreas.isEmpty()) {
+        if (seekerAreas.length == 0 || candidateAreas.length == 0) {
             return 0.5; // no data, neutral
         }
 
-        // Jaccard similarity using (governorate_id, city_id) pairs
-        Set<String> seekerSet = seekerAreas.stream()
-                .map(a -> a.getGovernorate().getId() + ":" + a.getCity().getId())
-                .collect(Collectors.toSet());
-
-        Set<String> candidateSet = candidateAreas.stream()
-                .map(a -> a.getGovernorate().getId() + ":" + a.getCity().getId())
-                .collect(Collectors.toSet());
-
-        Set<String> intersection = new HashSet<>(seekerSet);
-        intersection.retainAll(candidateSet);
-
-        Set<String> union = new HashSet<>(seekerSet);
-        union.addAll(candidateSet);
-
-        if (union.isEmpty()) {
-            return 0.0;
+        // Jaccard similarity over sorted (governorate_id, city_id) pairs
+        int intersection = 0;
+        int i = 0;
+        int j = 0;
+        while (i < seekerAreas.length && j < candidateAreas.length) {
+            if (seekerAreas[i] == candidateAreas[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (seekerAreas[i] < candidateAreas[j]) {
+                i++;
+            } else {
+                j++;
+            }
         }
+        int union = seekerAreas.length + candidateAreas.length - intersection;
 
-        return (double) intersection.size() / union.size();
+        return (double) intersection / union;
     }
 
-    private double computeSleepScore(UserProfile seeker, UserProfile candidate) {
-        SleepSchedulePreference seekerPref = seeker.getPrefSleepSchedule();
-        SleepSchedule candidateSleep = candidate.getSleepSchedule();
+    private double computeSleepScore(MatchFeatures seeker, MatchFeatures candidate) {
+        int seekerPref = seeker.prefSleepSchedule();
+        int candidateSleep = candidate.sleepSchedule();
 
-        if (seekerPref == null || candidateSleep == null) {
+        if (seekerPref == MatchFeatures.NONE || candidateSleep == MatchFeatures.NONE) {
             return 0.8; // no preference
         }
 
-        switch (seekerPref) {
-            case DONT_MIND:
-                return 1.0;
-            case EARLY_BIRD:
-                if (candidateSleep == SleepSchedule.EARLY_BIRD) return 1.0;
-                if (candidateSleep == SleepSchedule.FLEXIBLE) return 0.8;
-                return 0.2;
-            case NIGHT_OWL:
-                if (candidateSleep == SleepSchedule.NIGHT_OWL) return 1.0;
-                if (candidateSleep == SleepSchedule.FLEXIBLE) return 0.8;
-                return 0.2;
-            default:
-                return 0.8;
+        if (seekerPref == SleepSchedulePreference.DONT_MIND.ordinal()) {
+            return 1.0;
         }
+        if (seekerPref == SleepSchedulePreference.EARLY_BIRD.ordinal()) {
+            if (candidateSleep == SleepSchedule.EARLY_BIRD.ordinal()) return 1.0;
+            if (candidateSleep == SleepSchedule.FLEXIBLE.ordinal()) return 0.8;
+            return 0.2;
+        }
+        if (seekerPref == SleepSchedulePreference.NIGHT_OWL.ordinal()) {
+            if (candidateSleep == SleepSchedule.NIGHT_OWL.ordinal()) return 1.0;
+            if (candidateSleep == SleepSchedule.FLEXIBLE.ordinal()) return 0.8;
+            return 0.2;
+        }
+        return 0.8;
     }
 
-    private double computeCleanlinessScore(UserProfile seeker, UserProfile candidate) {
-        Integer seekerCleanliness = seeker.getCleanliness();
-        Integer candidateCleanliness = candidate.getCleanliness();
-
-        if (seekerCleanliness == null || candidateCleanliness == null) {
+    private double computeCleanlinessScore(MatchFeatures seeker, MatchFeatures candidate) {
+        if (seeker.cleanliness() == MatchFeatures.NONE || candidate.cleanliness() == MatchFeatures.NONE) {
             return 0.5;
         }
 
         // Scale 1-5: score = 1.0 - (abs(diff) / 4.0)
-        return 1.0 - (Math.abs(seekerCleanliness - candidateCleanliness) / 4.0);
+        return 1.0 - (Math.abs(seeker.cleanliness() - candidate.cleanliness()) / 4.0);
     }
 
-    private double computePetScore(UserProfile seeker, UserProfile candidate) {
-        PetPreference seekerPref = seeker.getPrefPets();
-        PetStatus candidatePets = candidate.getPets();
-
-        if (seekerPref == null || candidatePets == null) {
+    private double computePetScore(MatchFeatures seeker, MatchFeatures candidate) {
+        if (seeker.prefPets() == MatchFeatures.NONE || candidate.pets() == MatchFeatures.NONE) {
             return 1.0; // no preference
         }
 
-        switch (seekerPref) {
-            case OKAY_WITH_PETS:
-                return 1.0;
-            case NO_PETS_PREFERRED:
-                return candidatePets == PetStatus.NO_PETS ? 1.0 : 0.0;
-            default:
-                return 1.0;
+        if (seeker.prefPets() == PetPreference.NO_PETS_PREFERRED.ordinal()) {
+            return candidate.pets() == PetStatus.NO_PETS.ordinal() ? 1.0 : 0.0;
         }
+        return 1.0;
     }
 
-    private double computePersonalityScore(UserProfile seeker, UserProfile candidate) {
-        List<String> seekerTraits = parsePersonalityTraits(seeker.getPersonalityTraits());
-        List<String> candidateTraits = parsePersonalityTraits(candidate.getPersonalityTraits());
-
-        if (seekerTraits.isEmpty() || candidateTraits.isEmpty()) {
+    private double computePersonalityScore(MatchFeatures seeker, MatchFeatures candidate) {
+        if (!seeker.hasTraits() || !candidate.hasTraits()) {
             return 0.5; // neutral
         }
 
-        // Jaccard similarity
-        Set<String> seekerSet = new HashSet<>(seekerTraits.stream()
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet()));
-        Set<String> candidateSet = new HashSet<>(candidateTraits.stream()
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet()));
-
-        Set<String> intersection = new HashSet<>(seekerSet);
-        intersection.retainAll(candidateSet);
-
-        Set<String> union = new HashSet<>(seekerSet);
-        union.addAll(candidateSet);
-
-        if (union.isEmpty()) {
-            return 0.0;
+        // Jaccard similarity over the trait bitsets
+        long[] a = seeker.traits();
+        long[] b = candidate.traits();
+        int intersection = 0;
+        int union = 0;
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            long x = i < a.length ? a[i] : 0L;
+            long y = i < b.length ? b[i] : 0L;
+            intersection += Long.bitCount(x & y);
+            union += Long.bitCount(x | y);
         }
 
-        return (double) intersection.size() / union.size();
+        return (double) intersection / union;
     }
 
     private List<String> parsePersonalityTraits(String json) {
@@ -300,13 +505,19 @@ public class MatchingService {
             return Collections.emptyList();
         }
         try {
-            return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+            return traitCodec.deserializeTraits(json);
         } catch (Exception e) {
             log.warn("Failed to parse personality traits: {}", json);
             return Collections.emptyList();
         }
     }
 
+    private record CachedFeatures(Long version, MatchFeatures features) {}
+
+    public record ScoredCandidate(long userId, double score) {}
+
+    public record TopMatches(List<ScoredCandidate> matches, int eligible) {}
+
     public record MatchScoreResult(
             double score,
             Map<String, Double> breakdown,
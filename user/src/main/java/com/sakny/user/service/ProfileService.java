@@ -5,14 +5,18 @@ import com.sakny.common.exception.BusinessException;
 import com.sakny.common.exception.ProfileErrorCode;
 import com.sakny.common.model.*;
 import com.sakny.common.service.StorageService;
-import com.sakny.user.service.MatchingService.MatchScoreResult;
+import com.sakny.user.service.MatchingService.ScoredCandidate;
+import com.sakny.user.service.MatchingService.TopMatches;
 import com.sakny.user.entity.*;
+import com.sakny.user.event.ProfileChangedEvent;
 import com.sakny.user.mapper.ProfileMapper;
 import com.sakny.user.repository.*;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
@@ -24,7 +28,6 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,7 +44,9 @@ public class ProfileService {
     private final StorageService storageService;
     private final SafetyService safetyService;
     private final MatchingService matchingService;
-    private final MatchExplanationService matchExplanationService;
+    private final CompatibilityService compatibilityService;
+    private final RecommendationService recommendationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public ProfileResponse createProfile(Long userId, ProfileRequest request, MultipartFile profileImage) {
@@ -75,6 +80,8 @@ public class ProfileService {
         // Re-fetch with photo URL set before computing completion
         UserProfile refreshed = profileRepository.findByUserIdWithDetails(userId).orElse(saved);
         updateIsCompleteFlag(refreshed);
+        matchingService.refreshFeatures(refreshed);
+        eventPublisher.publishEvent(new ProfileChangedEvent(userId));
         return toEnrichedResponse(refreshed);
     }
 
@@ -101,6 +108,8 @@ public class ProfileService {
 
         // Apply partial updates using mapper - null fields are ignored
         profileMapper.partialUpdateEntity(profile, request, currentGov, currentCity);
+        // Atomic, so two concurrent edits never share a version and its cached scores
+        profile.setProfileVersion(profileRepository.incrementVersion(profile.getId()));
 
         // Handle preferred areas separately due to bidirectional relation
         if (request.getPreferredAreas() != null && !request.getPreferredAreas().isEmpty()) {
@@ -116,6 +125,8 @@ public class ProfileService {
 
         UserProfile refreshed = profileRepository.findByUserIdWithDetails(userId).orElse(saved);
         updateIsCompleteFlag(refreshed);
+        matchingService.refreshFeatures(refreshed);
+        eventPublisher.publishEvent(new ProfileChangedEvent(userId));
         return toEnrichedResponse(refreshed);
     }
 
@@ -217,6 +228,14 @@ public class ProfileService {
 
     @Transactional(readOnly = true)
     public Page<ProfileResponse> getRoommates(Long currentUserId, RoommateFilterRequest filter, Pageable pageable) {
+        return findRoommates(currentUserId, filter, pageable).map(profileMapper::toResponse);
+    }
+
+    /**
+     * One page of roommate profiles matching the filter, with the details their responses read
+     * (user, preferred areas, location) loaded for the whole page in one query.
+     */
+    private Page<UserProfile> findRoommates(Long currentUserId, RoommateFilterRequest filter, Pageable pageable) {
         Specification<UserProfile> spec = (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
@@ -224,9 +243,9 @@ public class ProfileService {
             predicates.add(cb.notEqual(root.get("user").get("id"), currentUserId));
 
             // Exclude blocked users (both directions)
-            Set<Long> excludedIds = safetyService.getExcludedUserIds(currentUserId);
-            if (!excludedIds.isEmpty()) {
-                predicates.add(cb.not(root.get("user").get("id").in(excludedIds)));
+            BlockRelations excluded = safetyService.getExcludedUserIds(currentUserId);
+            if (!excluded.isEmpty()) {
+                predicates.add(cb.not(root.get("user").get("id").in(excluded.excludedIds())));
             }
 
             if (filter.getGender() != null) {
@@ -254,7 +273,10 @@ public class ProfileService {
             return cb.and(predicates.toArray(new Predicate[0]));
         };
 
-        return profileRepository.findAll(spec, pageable).map(profileMapper::toResponse);
+        Page<UserProfile> page = profileRepository.findAll(spec, pageable);
+        Map<Long, UserProfile> details = loadProfilesByUserId(
+                page.getContent().stream().map(p -> p.getUser().getId()).toList());
+        return page.map(p -> details.getOrDefault(p.getUser().getId(), p));
     }
 
     // ===== Compatibility & Match Scores =====
@@ -266,32 +288,39 @@ public class ProfileService {
         UserProfile candidateProfile = profileRepository.findByUserIdWithDetails(targetUserId)
                 .orElseThrow(() -> new BusinessException(ProfileErrorCode.PROFILE_NOT_FOUND));
 
-        MatchScoreResult result = matchingService.computeMatchScore(seekerProfile, candidateProfile);
+        MatchScoreResponse scored = compatibilityService.cachedScore(seekerProfile, candidateProfile);
+        MatchExplanationResponse explained = compatibilityService.explain(scored, candidateProfile);
 
-        String candidateName = candidateProfile.getUser().getName();
-        String explanation = matchExplanationService.generateExplanation(result.score(), result.breakdown(), candidateName);
-        List<String> discussionTopics = matchExplanationService.generateDiscussionTopics(result.breakdown());
+        MatchScoreResponse response = withProfile(scored, toEnrichedResponse(candidateProfile));
+        response.setExplanation(explained.getExplanation());
+        response.setDiscussionTopics(explained.getDiscussionTopics());
+        return response;
+    }
 
-        return MatchScoreResponse.builder()
-                .userId(targetUserId)
-                .score(result.score())
-                .breakdown(result.breakdown())
-                .strengths(result.strengths())
-                .conflicts(result.conflicts())
-                .explanation(explanation)
-                .discussionTopics(discussionTopics)
-                .profile(toEnrichedResponse(candidateProfile))
-                .build();
+    /**
+     * Explanation and discussion topics for one candidate, fetched when the client expands its card
+     * rather than rendered for every card of a listing.
+     */
+    @Transactional(readOnly = true)
+    public MatchExplanationResponse getCompatibilityExplanation(Long currentUserId, Long targetUserId) {
+        UserProfile seekerProfile = profileRepository.findByUserIdWithDetails(currentUserId)
+                .orElseThrow(() -> new BusinessException(ProfileErrorCode.PROFILE_NOT_FOUND));
+        UserProfile candidateProfile = profileRepository.findByUserIdWithDetails(targetUserId)
+                .orElseThrow(() -> new BusinessException(ProfileErrorCode.PROFILE_NOT_FOUND));
+
+        return compatibilityService.explain(
+                compatibilityService.cachedScore(seekerProfile, candidateProfile), candidateProfile);
     }
 
     @Transactional(readOnly = true)
     public List<MatchScoreResponse> getRoommatesWithScores(Long currentUserId, RoommateFilterRequest filter, Pageable pageable) {
-        Page<ProfileResponse> page = getRoommates(currentUserId, filter, pageable);
+        Page<UserProfile> page = findRoommates(currentUserId, filter, pageable);
 
         UserProfile seekerProfile = profileRepository.findByUserIdWithDetails(currentUserId).orElse(null);
         if (seekerProfile == null) {
             // No profile yet, return results without scores
             return page.getContent().stream()
+                    .map(profileMapper::toResponse)
                     .map(pr -> MatchScoreResponse.builder()
                             .userId(pr.getUserId())
                             .score(0.0)
@@ -304,41 +333,69 @@ public class ProfileService {
         }
 
         List<MatchScoreResponse> scored = page.getContent().stream()
-                .map(pr -> {
-                    UserProfile candidateProfile = profileRepository.findByUserIdWithDetails(pr.getUserId()).orElse(null);
-                    if (candidateProfile == null) {
-                        return MatchScoreResponse.builder()
-                                .userId(pr.getUserId())
-                                .score(0.0)
-                                .breakdown(Map.of())
-                                .strengths(List.of())
-                                .conflicts(List.of())
-                                .explanation("")
-                                .discussionTopics(List.of())
-                                .profile(pr)
-                                .build();
-                    }
-                    MatchScoreResult result = matchingService.computeMatchScore(seekerProfile, candidateProfile);
-                    String candidateName = candidateProfile.getUser().getName();
-                    String explanation = matchExplanationService.generateExplanation(result.score(), result.breakdown(), candidateName);
-                    List<String> discussionTopics = matchExplanationService.generateDiscussionTopics(result.breakdown());
-                    return MatchScoreResponse.builder()
-                            .userId(pr.getUserId())
-                            .score(result.score())
-                            .breakdown(result.breakdown())
-                            .strengths(result.strengths())
-                            .conflicts(result.conflicts())
-                            .explanation(explanation)
-                            .discussionTopics(discussionTopics)
-                            .profile(pr)
-                            .build();
-                })
+                .map(candidateProfile -> toMatchScoreResponse(seekerProfile, candidateProfile,
+                        profileMapper.toResponse(candidateProfile)))
                 .sorted(Comparator.comparingDouble(MatchScoreResponse::getScore).reversed())
                 .collect(Collectors.toList());
 
         return scored;
     }
 
+    /**
+     * Ranks every complete profile matching the filter against the current user and returns one page
+     * of the global ranking. Only the first {@value RecommendationService#LIST_CAPACITY} ranks are served.
+     */
+    @Transactional(readOnly = true)
+    public Page<MatchScoreResponse> getRecommendedRoommates(Long currentUserId, RoommateFilterRequest filter, Pageable pageable) {
+        UserProfile seekerProfile = profileRepository.findByUserIdWithDetails(currentUserId)
+                .orElseThrow(() -> new BusinessException(ProfileErrorCode.PROFILE_NOT_FOUND));
+
+        int from = (int) Math.min(pageable.getOffset(), RecommendationService.LIST_CAPACITY);
+        int to = Math.min(from + pageable.getPageSize(), RecommendationService.LIST_CAPACITY);
+
+        TopMatches top = recommendationService.rank(seekerProfile, filter, to);
+        List<ScoredCandidate> ranked = top.matches();
+        List<ScoredCandidate> pageMatches = from < ranked.size() ? ranked.subList(from, ranked.size()) : List.of();
+
+        Map<Long, UserProfile> candidates = loadProfilesByUserId(
+                pageMatches.stream().map(ScoredCandidate::userId).toList());
+
+        List<MatchScoreResponse> content = pageMatches.stream()
+                .map(m -> candidates.get(m.userId()))
+                .filter(p -> p != null)
+                .map(p -> toMatchScoreResponse(seekerProfile, p, profileMapper.toResponse(p)))
+                .toList();
+
+        return new PageImpl<>(content, pageable, Math.min(top.eligible(), RecommendationService.LIST_CAPACITY));
+    }
+
+    private MatchScoreResponse toMatchScoreResponse(UserProfile seekerProfile, UserProfile candidateProfile, ProfileResponse profile) {
+        return withProfile(compatibilityService.compute(seekerProfile, candidateProfile), profile);
+    }
+
+    // Copies rather than mutates, since the scored part may be a shared cached instance
+    private MatchScoreResponse withProfile(MatchScoreResponse scored, ProfileResponse profile) {
+        return MatchScoreResponse.builder()
+                .userId(scored.getUserId())
+                .score(scored.getScore())
+                .breakdown(scored.getBreakdown())
+                .strengths(scored.getStrengths())
+                .conflicts(scored.getConflicts())
+                .profile(profile)
+                .build();
+    }
+
+    /**
+     * Loads the given users' profiles with their details in a single query, keyed by user id.
+     */
+    private Map<Long, UserProfile> loadProfilesByUserId(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return profileRepository.findAllByUserIdInWithDetails(userIds).stream()
+                .collect(Collectors.toMap(p -> p.getUser().getId(), p -> p));
+    }
+
     // ===== Saved Profiles =====
 
     @Transactional
@@ -363,8 +420,9 @@ public class ProfileService {
     @Transactional(readOnly = true, rollbackFor = Exception.class)
     public List<ProfileResponse> getSavedProfiles(Long currentUserId) {
         List<Long> savedIds = savedProfileRepository.findSavedUserIdsByUserId(currentUserId);
+        Map<Long, UserProfile> profiles = loadProfilesByUserId(savedIds);
         return savedIds.stream()
-                .map(id -> profileRepository.findByUserIdWithDetails(id).orElse(null))
+                .map(profiles::get)
                 .filter(p -> p != null)
                 .map(profileMapper::toResponse)
                 .toList();
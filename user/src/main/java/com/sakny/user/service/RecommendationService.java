@@ -0,0 +1,395 @@
+package com.sakny.user.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sakny.common.dto.RoommateFilterRequest;
+import com.sakny.common.event.RedisMessagesDroppedEvent;
+import com.sakny.user.config.MatchingProperties;
+import com.sakny.user.entity.UserProfile;
+import com.sakny.user.event.AccountDeletedEvent;
+import com.sakny.user.event.ProfileChangedEvent;
+import com.sakny.user.repository.UserProfileRepository;
+import com.sakny.user.service.MatchingService.ScoredCandidate;
+import com.sakny.user.service.MatchingService.TopMatches;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Global roommate rankings.
+ *
+ * <p>Unfiltered rankings are kept per seeker as a top-{@value #LIST_CAPACITY} list and maintained
+ * incrementally: when a profile changes, only the pairs involving that user are re-scored, the user's
+ * own list is rebuilt, and lists that hold the user or that the new score ranks into are copied with
+ * the entry moved, added or dropped; all others are left alone. Updates run after commit on a single
+ * bounded worker; a list that can no longer answer a read (it lost entries it cannot refill, is older
+ * than {@link #LIST_MAX_AGE}, or belongs to an older profile version) is rebuilt from the full pool on
+ * demand. At most {@link MatchingProperties#getListCacheSize()} seekers keep a list. Filtered requests
+ * always rank the full pool.
+ *
+ * <p>Profile changes and account deletions on any node are announced through Redis, and every node
+ * applies them to its own lists and candidate index. A list built while a change was being applied
+ * is returned but not kept, since the change's update of the cached lists could not reach it.
+ *
+ * <p>Eligible counts are only tracked while a list holds every eligible candidate. A list that was cut
+ * off at {@value #LIST_CAPACITY} ranks reports its count as {@value #LIST_CAPACITY} as long as it still
+ * holds that many entries, and is rebuilt otherwise.
+ */
+@Service
+@Slf4j
+public class RecommendationService implements MessageListener {
+
+    /** Ranks kept per seeker; also the deepest rank the recommendation endpoint serves. */
+    public static final int LIST_CAPACITY = 200;
+
+    private static final Duration LIST_MAX_AGE = Duration.ofMinutes(10);
+    private static final String CHANGE_CHANNEL = "sakny:matching:profile-changes";
+
+    private final UserProfileRepository profileRepository;
+    private final SafetyService safetyService;
+    private final MatchingService matchingService;
+    private final CandidateIndex candidateIndex;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Cache<Long, MatchList> lists;
+    private final AtomicLong changes = new AtomicLong(); // odd while a change is being applied
+    private final Set<Long> pendingUpdates = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor updateExecutor;
+    private final Timer updateLag;
+    private final Counter droppedUpdates;
+
+    public RecommendationService(UserProfileRepository profileRepository,
+                                 SafetyService safetyService,
+                                 MatchingService matchingService,
+                                 CandidateIndex candidateIndex,
+                                 StringRedisTemplate redisTemplate,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 MatchingProperties matchingProperties,
+                                 MeterRegistry meterRegistry) {
+        this.profileRepository = profileRepository;
+        this.safetyService = safetyService;
+        this.matchingService = matchingService;
+        this.candidateIndex = candidateIndex;
+        this.redisTemplate = redisTemplate;
+        this.lists = Caffeine.newBuilder()
+                .maximumSize(matchingProperties.getListCacheSize())
+                .expireAfterWrite(LIST_MAX_AGE)
+                .build();
+        this.updateExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(matchingProperties.getUpdateQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "match-list-updates");
+                    t.setDaemon(true);
+                    return t;
+                });
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANGE_CHANNEL));
+
+        Gauge.builder("sakny.matching.updates.pending", pendingUpdates, Set::size)
+                .description("Profile changes waiting to be applied to cached match lists")
+                .register(meterRegistry);
+        Gauge.builder("sakny.matching.lists", lists, Cache::estimatedSize)
+                .description("Seekers with a cached match list")
+                .register(meterRegistry);
+        this.updateLag = Timer.builder("sakny.matching.updates.lag")
+                .description("Time from a profile change to its application on cached match lists")
+                .register(meterRegistry);
+        this.droppedUpdates = Counter.builder("sakny.matching.updates.dropped")
+                .description("Profile changes rejected by a full update queue")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        updateExecutor.shutdownNow();
+    }
+
+    /**
+     * Best {@code k} candidates for the seeker. The seeker's profile must be loaded with its details.
+     * For an unfiltered request of at most {@value #LIST_CAPACITY}, the eligible count is exact only up
+     * to {@value #LIST_CAPACITY}.
+     */
+    public TopMatches rank(UserProfile seeker, RoommateFilterRequest filter, int k) {
+        Long seekerId = seeker.getUser().getId();
+        MatchFeatures seekerFeatures = matchingService.featuresOf(seeker);
+        if (!isEmpty(filter) || k > LIST_CAPACITY) {
+            return matchingService.topMatches(seekerFeatures, loadCandidatePool(seekerFeatures, seekerId, filter), k);
+        }
+
+        BlockRelations excluded = safetyService.getExcludedUserIds(seekerId);
+        MatchList list = lists.getIfPresent(seekerId);
+        if (list != null && list.isCurrent(seeker.getProfileVersion())) {
+            TopMatches view = list.view(excluded, k);
+            if (view != null) {
+                return view;
+            }
+        }
+        long generation = changes.get();
+        list = build(seekerFeatures, seekerId, seeker.getProfileVersion());
+        install(seekerId, list, generation);
+        return list.view(excluded, k);
+    }
+
+    // Keeps the list only if no change was applied since generation was read; such a change updated
+    // the cached lists without this one. A change that starts during the install removes it again.
+    private void install(Long seekerId, MatchList list, long generation) {
+        if ((generation & 1) != 0) {
+            return;
+        }
+        lists.asMap().compute(seekerId, (id, current) -> changes.get() == generation ? list : current);
+        if (changes.get() != generation) {
+            lists.asMap().remove(seekerId, list);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onProfileChanged(ProfileChangedEvent event) {
+        announce(event.userId());
+        enqueue(event.userId(), event.occurredAt());
+    }
+
+    @TransactionalEventListener
+    public void onAccountDeleted(AccountDeletedEvent event) {
+        announce(event.userId());
+        enqueue(event.userId(), Instant.now());
+    }
+
+    // ------------------------------------------------------------------ //
+    //  Cross-node changes: "<node>\n<userId>"
+    // ------------------------------------------------------------------ //
+
+    private void announce(Long userId) {
+        try {
+            redisTemplate.convertAndSend(CHANGE_CHANNEL, nodeId + "\n" + userId);
+        } catch (Exception e) {
+            log.warn("Could not publish match list change for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 2);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            enqueue(Long.valueOf(parts[1]), Instant.now());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed match list change");
+        }
+    }
+
+    // Changes announced by other nodes may be among the dropped messages; the candidate index
+    // catches up at its next rebuild
+    @EventListener
+    public void onMessagesDropped(RedisMessagesDroppedEvent event) {
+        changes.addAndGet(2);
+        lists.invalidateAll();
+    }
+
+    private void enqueue(Long userId, Instant occurredAt) {
+        if (!pendingUpdates.add(userId)) {
+            return; // an update for this user is already queued and will read the latest state
+        }
+        try {
+            updateExecutor.execute(() -> {
+                pendingUpdates.remove(userId);
+                try {
+                    applyChange(userId);
+                } catch (Exception e) {
+                    log.warn("Failed to update match lists for user {}: {}", userId, e.getMessage());
+                    lists.invalidateAll();
+                } finally {
+                    updateLag.record(Duration.between(occurredAt, Instant.now()));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingUpdates.remove(userId);
+            droppedUpdates.increment();
+            // Lists can no longer be kept exact without this change; let them rebuild on demand
+            changes.addAndGet(2);
+            lists.invalidateAll();
+            log.warn("Match list update queue full, dropped change for user {}", userId);
+        }
+    }
+
+    private void applyChange(Long userId) {
+        changes.incrementAndGet();
+        try {
+            applyChangeToLists(userId);
+        } finally {
+            changes.incrementAndGet();
+        }
+    }
+
+    private void applyChangeToLists(Long userId) {
+        lists.invalidate(userId);
+        List<UserProfile> loaded = profileRepository.findAllByUserIdInWithDetails(List.of(userId));
+        if (loaded.isEmpty() || !Boolean.TRUE.equals(loaded.get(0).getIsComplete())) {
+            candidateIndex.update(userId, null);
+            updateLists(userId, seeker -> 0.0);
+            return;
+        }
+
+        UserProfile profile = loaded.get(0);
+        MatchFeatures features = matchingService.refreshFeatures(profile);
+        candidateIndex.update(userId, features);
+        updateLists(userId, seeker -> candidateIndex.admits(seeker, features)
+                ? matchingService.computeMatchScore(seeker, features)
+                : 0.0);
+        lists.put(userId, build(features, userId, profile.getProfileVersion()));
+    }
+
+    // Replaces only lists the change affects, and only if no rebuild replaced them meanwhile
+    private void updateLists(long userId, ToDoubleFunction<MatchFeatures> scoreFor) {
+        lists.asMap().forEach((seekerId, list) -> {
+            MatchList next = list.withCandidate(userId, scoreFor.applyAsDouble(list.seeker()));
+            if (next != list) {
+                lists.asMap().replace(seekerId, list, next);
+            }
+        });
+    }
+
+    private MatchList build(MatchFeatures seekerFeatures, Long seekerId, Long version) {
+        TopMatches top = matchingService.topMatches(seekerFeatures, loadCandidatePool(seekerFeatures, seekerId, null), LIST_CAPACITY);
+        return MatchList.of(seekerFeatures, version, top.matches(), top.eligible() <= LIST_CAPACITY, Instant.now());
+    }
+
+    /**
+     * Features of every complete, non-blocked profile other than the seeker's that passes the filter
+     * and the candidate index's hard constraints.
+     */
+    private List<MatchFeatures> loadCandidatePool(MatchFeatures seeker, Long seekerId, RoommateFilterRequest filter) {
+        BlockRelations excluded = safetyService.getExcludedUserIds(seekerId);
+        boolean filtered = !isEmpty(filter);
+        List<MatchFeatures> pool = candidateIndex.candidatesFor(seeker,
+                filtered ? filter.getGender() : null, filtered ? filter.getRoommateType() : null);
+        pool.removeIf(f -> f.userId() == seekerId
+                || excluded.excludes(f.userId())
+                || (filtered && !matchesFilter(f, filter)));
+        return pool;
+    }
+
+    private static boolean isEmpty(RoommateFilterRequest filter) {
+        return filter == null
+                || (filter.getGender() == null && filter.getMinBudget() == null && filter.getMaxBudget() == null
+                && filter.getSmoking() == null && filter.getPets() == null && filter.getSleepSchedule() == null
+                && filter.getRoommateType() == null);
+    }
+
+    // Same semantics as the predicates in ProfileService.getRoommates, evaluated on precomputed features
+    private static boolean matchesFilter(MatchFeatures f, RoommateFilterRequest filter) {
+        if (filter.getGender() != null && f.gender() != filter.getGender().ordinal()) return false;
+        if (filter.getMinBudget() != null && (!f.hasBudget() || f.budgetMax() < filter.getMinBudget())) return false;
+        if (filter.getMaxBudget() != null && (!f.hasBudget() || f.budgetMin() > filter.getMaxBudget())) return false;
+        if (filter.getSmoking() != null && f.smoking() != filter.getSmoking().ordinal()) return false;
+        if (filter.getPets() != null && f.pets() != filter.getPets().ordinal()) return false;
+        if (filter.getSleepSchedule() != null && f.sleepSchedule() != filter.getSleepSchedule().ordinal()) return false;
+        return filter.getRoommateType() == null || f.roommateType() == filter.getRoommateType().ordinal();
+    }
+
+    /**
+     * Immutable top-{@value #LIST_CAPACITY} ranking for one seeker, with its members' IDs sorted for
+     * lookup. {@code exhaustive} means every eligible candidate is in {@code entries}; otherwise only
+     * the listed ranks are known.
+     */
+    private record MatchList(MatchFeatures seeker, Long version, List<ScoredCandidate> entries,
+                             long[] members, boolean exhaustive, Instant builtAt) {
+
+        static MatchList of(MatchFeatures seeker, Long version, List<ScoredCandidate> entries,
+                            boolean exhaustive, Instant builtAt) {
+            long[] members = entries.stream().mapToLong(ScoredCandidate::userId).sorted().toArray();
+            return new MatchList(seeker, version, List.copyOf(entries), members, exhaustive, builtAt);
+        }
+
+        boolean isCurrent(Long profileVersion) {
+            return version.equals(profileVersion) && builtAt.plus(LIST_MAX_AGE).isAfter(Instant.now());
+        }
+
+        /**
+         * The first {@code k} entries not excluded, or {@code null} if the list cannot tell them or
+         * the eligible count.
+         */
+        TopMatches view(BlockRelations exclusions, int k) {
+            List<ScoredCandidate> matches = new ArrayList<>(Math.min(k, entries.size()));
+            int included = 0;
+            for (ScoredCandidate entry : entries) {
+                if (exclusions.excludes(entry.userId())) {
+                    continue;
+                }
+                included++;
+                if (matches.size() < k) {
+                    matches.add(entry);
+                }
+            }
+            if (exhaustive) {
+                return new TopMatches(matches, included);
+            }
+            // Cut off: at least as many eligible as held, so a full list is enough for any page total
+            return matches.size() < k || included < LIST_CAPACITY ? null : new TopMatches(matches, LIST_CAPACITY);
+        }
+
+        /**
+         * This list with the candidate re-ranked at {@code score}, or removed when the score is zero
+         * (gender mismatch or no longer a candidate); {@code this} if the change does not reach it.
+         */
+        MatchList withCandidate(long userId, double score) {
+            boolean member = Arrays.binarySearch(members, userId) >= 0;
+            ScoredCandidate scored = new ScoredCandidate(userId, score);
+            if (!member) {
+                if (score <= 0.0) {
+                    return this;
+                }
+                int pos = Collections.binarySearch(entries, scored, MatchingService.RANK_ORDER);
+                // Past the last known rank the candidate only belongs here if nothing is missing
+                if ((pos < 0 ? -pos - 1 : pos) == entries.size() && !exhaustive) {
+                    return this;
+                }
+            }
+
+            List<ScoredCandidate> next = new ArrayList<>(entries);
+            next.removeIf(e -> e.userId() == userId);
+            boolean nextExhaustive = exhaustive;
+            if (score > 0.0) {
+                int pos = Collections.binarySearch(next, scored, MatchingService.RANK_ORDER);
+                pos = pos < 0 ? -pos - 1 : pos;
+                if (pos < next.size() || exhaustive) {
+                    next.add(pos, scored);
+                    if (next.size() > LIST_CAPACITY) {
+                        next.remove(next.size() - 1);
+                        nextExhaustive = false;
+                    }
+                }
+            }
+            return MatchList.of(seeker, version, next, nextExhaustive, builtAt);
+        }
+    }
+}
@@ -1,30 +1,90 @@
 package com.sakny.user.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sakny.common.event.RedisMessagesDroppedEvent;
 import com.sakny.common.exception.BusinessException;
 import com.sakny.common.exception.ProfileErrorCode;
+import com.sakny.user.config.SafetyProperties;
 import com.sakny.user.entity.BlockedUser;
 import com.sakny.user.entity.User;
 import com.sakny.user.entity.UserReport;
 import com.sakny.user.repository.BlockedUserRepository;
 import com.sakny.user.repository.UserReportRepository;
 import com.sakny.user.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Blocking and reporting.
+ *
+ * <p>Block checks are answered from a per-user cache of {@link BlockRelations}, loaded on first use
+ * with two queries. Blocking or unblocking evicts both users once the change commits, on this node
+ * and, through Redis, on the others. A load that overlaps an eviction is returned but not cached, so
+ * a relation read before a commit cannot outlive it.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class SafetyService {
+public class SafetyService implements MessageListener {
+
+    private static final String INVALIDATION_CHANNEL = "sakny:safety:block-invalidations";
 
     private final BlockedUserRepository blockedUserRepository;
     private final UserReportRepository reportRepository;
     private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Cache<Long, BlockRelations> relations;
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public SafetyService(BlockedUserRepository blockedUserRepository,
+                         UserReportRepository reportRepository,
+                         UserRepository userRepository,
+                         StringRedisTemplate redisTemplate,
+                         RedisMessageListenerContainer listenerContainer,
+                         SafetyProperties safetyProperties,
+                         MeterRegistry meterRegistry) {
+        this.blockedUserRepository = blockedUserRepository;
+        this.reportRepository = reportRepository;
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.relations = Caffeine.newBuilder()
+                .maximumSize(safetyProperties.getBlockCacheSize())
+                .expireAfterWrite(safetyProperties.getBlockCacheTtl())
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+
+        Gauge.builder("sakny.safety.blocks.cache.size", relations, Cache::estimatedSize)
+                .description("Users with cached block relations")
+                .register(meterRegistry);
+        this.hits = Counter.builder("sakny.safety.blocks.cache")
+                .tag("result", "hit")
+                .description("Block relations answered from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("sakny.safety.blocks.cache")
+                .tag("result", "miss")
+                .description("Block relations loaded from the database")
+                .register(meterRegistry);
+    }
 
     @Transactional
     public void blockUser(Long blockerId, Long blockedId) {
@@ -37,27 +97,29 @@ public class SafetyService {
         User blocker = userRepository.getReferenceById(blockerId);
         User blocked = userRepository.getReferenceById(blockedId);
         blockedUserRepository.save(BlockedUser.builder().blocker(blocker).blocked(blocked).build());
+        invalidateAfterCommit(blockerId, blockedId);
         log.info("User {} blocked user {}", blockerId, blockedId);
     }
 
     @Transactional
     public void unblockUser(Long blockerId, Long blockedId) {
         blockedUserRepository.deleteByBlockerIdAndBlockedId(blockerId, blockedId);
+        invalidateAfterCommit(blockerId, blockedId);
         log.info("User {} unblocked user {}", blockerId, blockedId);
     }
 
-    @Transactional(readOnly = true)
     public boolean isBlocked(Long blockerId, Long blockedId) {
-        return blockedUserRepository.existsByBlockerIdAndBlockedId(blockerId, blockedId);
+        return relationsOf(blockerId).hasBlocked(blockedId);
     }
 
-    @Transactional(readOnly = true)
-    public Set<Long> getExcludedUserIds(Long userId) {
-        List<Long> blocked = blockedUserRepository.findBlockedUserIds(userId);
-        List<Long> blockers = blockedUserRepository.findBlockerIds(userId);
-        Set<Long> excluded = new HashSet<>(blocked);
-        excluded.addAll(blockers);
-        return excluded;
+    /** Whether either user blocked the other. */
+    public boolean isBlockedEitherWay(Long userId, Long otherUserId) {
+        return relationsOf(userId).excludes(otherUserId);
+    }
+
+    /** Users blocked by or blocking the user, to leave out of anything shown to them. */
+    public BlockRelations getExcludedUserIds(Long userId) {
+        return relationsOf(userId);
     }
 
     @Transactional(readOnly = true)
@@ -84,4 +146,70 @@ public class SafetyService {
         reportRepository.save(report);
         log.info("User {} reported user {} for reason: {}", reporterId, reportedId, reason);
     }
+
+    // ------------------------------------------------------------------ //
+    //  Block relation cache
+    // ------------------------------------------------------------------ //
+
+    private BlockRelations relationsOf(Long userId) {
+        BlockRelations cached = relations.getIfPresent(userId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long generation = evictions.get();
+        BlockRelations loaded = BlockRelations.of(
+                blockedUserRepository.findBlockedUserIds(userId),
+                blockedUserRepository.findBlockerIds(userId));
+        // evict() counts before it removes, so an eviction either fails this check or removes the entry
+        relations.asMap().compute(userId, (id, current) -> evictions.get() == generation ? loaded : current);
+        return loaded;
+    }
+
+    private void invalidateAfterCommit(Long userId, Long otherUserId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(userId, otherUserId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(userId, otherUserId);
+            }
+        });
+    }
+
+    private void invalidate(Long userId, Long otherUserId) {
+        evict(userId, otherUserId);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, userId + "," + otherUserId);
+        } catch (Exception e) {
+            log.warn("Could not publish block cache invalidation for users {} and {}: {}",
+                    userId, otherUserId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] ids = new String(message.getBody(), StandardCharsets.UTF_8).split(",");
+        try {
+            evict(Long.valueOf(ids[0]), Long.valueOf(ids[1]));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed block cache invalidation");
+        }
+    }
+
+    @EventListener
+    public void onMessagesDropped(RedisMessagesDroppedEvent event) {
+        evictions.incrementAndGet();
+        relations.invalidateAll();
+    }
+
+    private void evict(Long userId, Long otherUserId) {
+        evictions.incrementAndGet();
+        relations.invalidate(userId);
+        relations.invalidate(otherUserId);
+    }
 }
@@ -0,0 +1,99 @@
+package com.sakny.user.service;
+
+import com.sakny.user.entity.PersonalityTrait;
+import com.sakny.user.repository.PersonalityTraitRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns personality traits to the dense ids of the {@code personality_traits} table.
+ *
+ * <p>The whole table is loaded on first use. A trait this node has not seen is looked up, and
+ * registered if nobody has, so ids stay identical across nodes and restarts. Registration stops once
+ * the dictionary holds {@value #MAX_TRAITS} traits, and traits longer than the column are never
+ * registered; such traits get {@link #UNKNOWN} and take no part in matching.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TraitDictionary {
+
+    /** Id of a trait that is not in the dictionary and will not be added. */
+    public static final int UNKNOWN = -1;
+
+    static final int MAX_TRAITS = 1000;
+    static final int MAX_TRAIT_LENGTH = 100;
+
+    private final PersonalityTraitRepository traitRepository;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Bitset of the given traits' ids, as {@link BitSet#toLongArray()}.
+     */
+    public long[] toBits(List<String> traits) {
+        BitSet bits = new BitSet();
+        for (String trait : traits) {
+            int id = trait == null ? UNKNOWN : idOf(trait);
+            if (id != UNKNOWN) {
+                bits.set(id);
+            }
+        }
+        return bits.toLongArray();
+    }
+
+    public int idOf(String trait) {
+        ensureLoaded();
+        String name = trait.trim().toLowerCase(Locale.ROOT);
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (name.isEmpty() || name.length() > MAX_TRAIT_LENGTH) {
+            return UNKNOWN;
+        }
+        // Outside the map's locks: concurrent callers may both query, and get the same id
+        Integer resolved = lookupOrRegister(name);
+        if (resolved == null) {
+            return UNKNOWN;
+        }
+        ids.putIfAbsent(name, resolved);
+        return resolved;
+    }
+
+    private Integer lookupOrRegister(String name) {
+        return traitRepository.findByName(name)
+                .or(() -> {
+                    if (ids.size() >= MAX_TRAITS) {
+                        log.debug("Personality trait dictionary full, not registering '{}'", name);
+                        return Optional.empty();
+                    }
+                    traitRepository.insertIfAbsent(name);
+                    log.debug("Registered personality trait '{}'", name);
+                    return traitRepository.findByName(name);
+                })
+                .map(PersonalityTrait::getId)
+                .orElse(null);
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    traitRepository.findAll().forEach(t -> ids.put(t.getName(), t.getId()));
+                    loaded = true;
+                    log.info("Loaded {} personality traits", ids.size());
+                }
+            }
+        }
+    }
+}